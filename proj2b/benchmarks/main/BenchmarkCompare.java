@@ -0,0 +1,81 @@
+package main;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two result files written by BenchmarkRunner and prints the change
+ * of every benchmark they share. A change is flagged when it is worse than
+ * the threshold (10% by default) and the two error intervals do not overlap.
+ * Exits with status 1 if anything was flagged, so it can gate a build.
+ *
+ * Usage: java main.BenchmarkCompare BASELINE.json CANDIDATE.json [threshold %]
+ */
+public class BenchmarkCompare {
+    private record Score(String mode, double score, double error, String unit) {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: java main.BenchmarkCompare <baseline.json> <candidate.json> "
+                    + "[threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length == 3 ? Double.parseDouble(args[2]) / 100 : 0.10;
+        Map<String, Score> baseline = read(Path.of(args[0]));
+        Map<String, Score> candidate = read(Path.of(args[1]));
+
+        boolean regressed = false;
+        System.out.printf("%-70s %14s %14s %9s%n", "benchmark", "baseline", "candidate", "change");
+        for (Map.Entry<String, Score> entry : baseline.entrySet()) {
+            Score before = entry.getValue();
+            Score after = candidate.get(entry.getKey());
+            if (after == null) {
+                continue;
+            }
+            double change = (after.score() - before.score()) / before.score();
+            /* In throughput modes a bigger score is better. */
+            double worse = before.mode().equals("thrpt") ? -change : change;
+            boolean overlap = Math.abs(after.score() - before.score())
+                    <= before.error() + after.error();
+            boolean flagged = worse > threshold && !overlap;
+            regressed |= flagged;
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%s%n", entry.getKey(),
+                    before.score(), after.score(), change * 100, after.unit(),
+                    flagged ? "  REGRESSION" : "");
+        }
+        System.exit(regressed ? 1 : 0);
+    }
+
+    /** Reads FILE, keyed by benchmark name and parameters. */
+    private static Map<String, Score> read(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        JsonArray runs = JsonParser.parseString(Files.readString(file)).getAsJsonArray();
+        for (JsonElement element : runs) {
+            JsonObject run = element.getAsJsonObject();
+            StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+            if (run.has("params")) {
+                Map<String, String> params = new TreeMap<>();
+                for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+                    params.put(param.getKey(), param.getValue().getAsString());
+                }
+                key.append(params);
+            }
+            JsonObject metric = run.getAsJsonObject("primaryMetric");
+            double error = metric.get("scoreError").isJsonPrimitive()
+                    && metric.get("scoreError").getAsJsonPrimitive().isNumber()
+                    ? metric.get("scoreError").getAsDouble() : 0;
+            scores.put(key.toString(), new Score(run.get("mode").getAsString(),
+                    metric.get("score").getAsDouble(), error, metric.get("scoreUnit").getAsString()));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,64 @@
+package main;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Runs the JMH benchmarks in this folder and writes the results as JMH JSON
+ * to benchmarks/results/LABEL.json. LABEL defaults to the short hash of the
+ * current git commit, so runs from different commits sit side by side and can
+ * be diffed with BenchmarkCompare.
+ *
+ * The benchmarks folder is not an IntelliJ source root because it needs JMH
+ * (jmh-core and jmh-generator-annprocess 1.37, plus their jopt-simple and
+ * commons-math3 dependencies). Compile src and benchmarks together with those
+ * jars and the course library on the classpath, with annotation processing
+ * enabled so JMH generates its harness classes, then run from proj2b:
+ *
+ *     java main.BenchmarkRunner [label] [benchmark regex]
+ */
+public class BenchmarkRunner {
+    private static final Path RESULTS = Path.of("benchmarks", "results");
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        String label = args.length > 0 ? args[0] : commitLabel();
+        String include = args.length > 1 ? args[1] : ".*Benchmark.*";
+        Files.createDirectories(RESULTS);
+        Path result = RESULTS.resolve(label + ".json");
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .build();
+        new Runner(options).run();
+        System.out.println("Wrote " + result);
+    }
+
+    /** Returns the short hash of HEAD, or "local" if git is not available. */
+    private static String commitLabel() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(git.getInputStream()))) {
+                String hash = out.readLine();
+                if (git.waitFor() == 0 && hash != null && !hash.isBlank()) {
+                    return hash.trim();
+                }
+            }
+        } catch (IOException e) {
+            // Fall through to the default label.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "local";
+    }
+}
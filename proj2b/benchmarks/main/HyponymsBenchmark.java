@@ -0,0 +1,106 @@
+package main;
+
+import browser.NgordnetQuery;
+import ngrams.NGramMap;
+import ngrams.WordDictionary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times hyponym traversal and end-to-end HyponymsHandler queries on the
+ * 1000-synset subgraph, from a shallow root (wax, 27 hyponyms), a middle one
+ * (protein, 275) and the deepest one (entity, 1664). The first call for each
+ * synset warms WordNet's descendant cache, so these are steady-state numbers.
+ * The hypernym benchmarks walk the other way, from the root up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HyponymsBenchmark {
+    @Param({"wax", "protein", "entity"})
+    private String root;
+
+    private WordNet wordNet;
+    private HyponymsHandler handler;
+    private NgordnetQuery k0;
+    private NgordnetQuery k5;
+    private NgordnetQuery twoWords;
+    private Set<String> withEntity;
+    private Set<String> withSubstance;
+
+    @Setup
+    public void setUp() {
+        WordDictionary dictionary = new WordDictionary();
+        wordNet = new WordNet("data/wordnet/synsets1000-subgraph.txt",
+                "data/wordnet/hyponyms1000-subgraph.txt", dictionary);
+        NGramMap ngm = new NGramMap("data/ngrams/words_that_start_with_q.csv",
+                "data/ngrams/total_counts.csv", NGramMap.StorageMode.COLUMNAR, dictionary);
+        handler = new HyponymsHandler(wordNet, ngm);
+        k0 = new NgordnetQuery(List.of(root), 1900, 2020, 0);
+        k5 = new NgordnetQuery(List.of(root), 1900, 2020, 5);
+        twoWords = new NgordnetQuery(List.of(root, "substance"), 1900, 2020, 0);
+        withEntity = new HashSet<>(List.of("entity", root));
+        withSubstance = new HashSet<>(List.of("substance", root));
+    }
+
+    @Benchmark
+    public int[] traversal() {
+        return wordNet.hyponymIds(Set.of(root));
+    }
+
+    /**
+     * Intersects with entity, which is above every synset, so the query word
+     * is the cheaper one to expand whichever order the set iterates in.
+     */
+    @Benchmark
+    public int[] traversalWithEntity() {
+        return wordNet.hyponymIds(withEntity);
+    }
+
+    @Benchmark
+    public Set<String> hyponymWords() {
+        return wordNet.hyponyms(root);
+    }
+
+    @Benchmark
+    public String handleK0() {
+        return handler.handle(k0);
+    }
+
+    @Benchmark
+    public String handleK5() {
+        return handler.handle(k5);
+    }
+
+    @Benchmark
+    public String handleTwoWordsK0() {
+        return handler.handle(twoWords);
+    }
+
+    @Benchmark
+    public Set<String> hypernyms() {
+        return wordNet.hypernyms(root);
+    }
+
+    @Benchmark
+    public Set<String> lowestCommonAncestor() {
+        return wordNet.lowestCommonAncestor(withSubstance);
+    }
+}
@@ -0,0 +1,41 @@
+package main;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times building a WordNet from each synsets/hyponyms pair in data/wordnet.
+ * The full hyponyms.txt is not included because its synsets.txt is not in
+ * the repository.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordNetLoadBenchmark {
+    /** Names a pair of files: "synsets" + NAME and "hyponyms" + NAME, or random_syn/random_hyp. */
+    @Param({"11.txt", "14.txt", "16.txt", "-EECS.txt", "random_10.txt", "random_25.txt",
+            "1000-subgraph.txt"})
+    private String dataset;
+
+    @Benchmark
+    public WordNet load() {
+        if (dataset.startsWith("random")) {
+            String suffix = dataset.substring("random".length());
+            return new WordNet("data/wordnet/random_syn" + suffix, "data/wordnet/random_hyp" + suffix);
+        }
+        return new WordNet("data/wordnet/synsets" + dataset, "data/wordnet/hyponyms" + dataset);
+    }
+}
@@ -0,0 +1,115 @@
+package main;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times building a WordNet from its text files against loading it from a
+ * snapshot compiled from the same files. "full" pairs the real hyponyms.txt
+ * with a generated synsets file, since synsets.txt is not in the repository:
+ * one synset per ID in hyponyms.txt, about 1.5 words each with a fifth of
+ * them shared between synsets, and an 80-character gloss, like the real one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordNetSnapshotBenchmark {
+    /** "synsets" + NAME and "hyponyms" + NAME in data/wordnet, or "full". */
+    @Param({"-EECS.txt", "1000-subgraph.txt", "full"})
+    private String dataset;
+
+    private String synsets;
+    private String hyponyms;
+    private Path generated;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (dataset.equals("full")) {
+            hyponyms = "data/wordnet/hyponyms.txt";
+            generated = Files.createTempFile("synsets-standin", ".txt");
+            generateSynsets(Path.of(hyponyms), generated, new Random(61));
+            synsets = generated.toString();
+        } else {
+            synsets = "data/wordnet/synsets" + dataset;
+            hyponyms = "data/wordnet/hyponyms" + dataset;
+        }
+        snapshot = Files.createTempFile("wordnet", ".snapshot");
+        WordNetSnapshotCompiler.compile(synsets, hyponyms, snapshot.toString());
+        System.out.printf("%n%s: %d bytes of text, %d bytes of snapshot%n", dataset,
+                Files.size(Path.of(synsets)) + Files.size(Path.of(hyponyms)), Files.size(snapshot));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(snapshot);
+        if (generated != null) {
+            Files.delete(generated);
+        }
+    }
+
+    @Benchmark
+    public WordNet parseText() {
+        return new WordNet(synsets, hyponyms);
+    }
+
+    @Benchmark
+    public WordNet loadSnapshot() {
+        return new WordNet(snapshot.toString());
+    }
+
+    /** Writes a synsets file to OUT with a line for every synset ID in HYPONYMSFILE. */
+    private static void generateSynsets(Path hyponymsFile, Path out, Random random)
+            throws IOException {
+        int synsets = 0;
+        for (String line : Files.readAllLines(hyponymsFile)) {
+            for (String id : line.split(",")) {
+                synsets = Math.max(synsets, Integer.parseInt(id) + 1);
+            }
+        }
+        List<String> vocabulary = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(out)) {
+            for (int id = 0; id < synsets; id += 1) {
+                StringBuilder line = new StringBuilder().append(id).append(',');
+                int words = random.nextDouble() < 0.6 ? 1 : 2 + random.nextInt(2);
+                for (int w = 0; w < words; w += 1) {
+                    String word;
+                    if (vocabulary.isEmpty() || random.nextDouble() < 0.8) {
+                        word = "w_" + Integer.toString(vocabulary.size(), 36);
+                        vocabulary.add(word);
+                    } else {
+                        word = vocabulary.get(random.nextInt(vocabulary.size()));
+                    }
+                    line.append(w == 0 ? "" : " ").append(word);
+                }
+                line.append(",a gloss of eighty characters or so, with a comma, ");
+                while (line.length() % 100 != 0) {
+                    line.append((char) ('a' + random.nextInt(26)));
+                }
+                writer.write(line.append('\n').toString());
+            }
+        }
+    }
+}
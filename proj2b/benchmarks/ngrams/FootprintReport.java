@@ -0,0 +1,93 @@
+package ngrams;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Prints the heap retained by an NGramMap per word in each StorageMode, for
+ * words_that_start_with_q.csv and for a generated stand-in for the full
+ * corpus. The stand-in mimics the shape of the real data: most words appear
+ * in a handful of scattered years within a decade or two, a quarter are
+ * recorded every year over a span of a few decades, and a few every year
+ * since 1800.
+ *
+ * The numbers are heap deltas around construction after repeated System.gc()
+ * calls, so they include the WordDictionary and total counts and are only
+ * accurate to a few percent. Run from proj2b:
+ *
+ *     java ngrams.FootprintReport [stand-in words, default 200000]
+ */
+public class FootprintReport {
+    private static final String Q_WORDS_FILE = "data/ngrams/words_that_start_with_q.csv";
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int words = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        report("words_that_start_with_q.csv", Q_WORDS_FILE);
+
+        Path standIn = Files.createTempFile("ngrams-standin", ".csv");
+        try {
+            generate(standIn, words, new Random(61));
+            report("stand-in, " + words + " words", standIn.toString());
+        } finally {
+            Files.delete(standIn);
+        }
+    }
+
+    private static void report(String label, String wordsFile) throws InterruptedException {
+        System.out.println(label);
+        for (NGramMap.StorageMode mode : NGramMap.StorageMode.values()) {
+            long before = usedHeap();
+            NGramMap ngm = new NGramMap(wordsFile, TOTAL_COUNTS_FILE, mode, new WordDictionary());
+            long after = usedHeap();
+            int size = ngm.dictionary().size();
+            Reference.reachabilityFence(ngm);
+            System.out.printf("  %-10s %8.1f bytes/word  (%.1f MB for %d words)%n",
+                    mode, (double) (after - before) / size, (after - before) / 1e6, size);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i += 1) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** Writes a words file of WORDS synthetic words to PATH. */
+    private static void generate(Path path, int words, Random random) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            for (int w = 0; w < words; w += 1) {
+                String word = "w" + Integer.toString(w, 36);
+                double kind = random.nextDouble();
+                if (kind < 0.70) {
+                    int from = 1700 + random.nextInt(300);
+                    int years = 1 + random.nextInt(8);
+                    int year = from;
+                    for (int i = 0; i < years && year <= 2019; i += 1) {
+                        write(out, word, year, random);
+                        year += 1 + random.nextInt(5);
+                    }
+                } else {
+                    int from = kind < 0.95 ? 1750 + random.nextInt(250) : 1800;
+                    int to = kind < 0.95 ? Math.min(2019, from + 20 + random.nextInt(80)) : 2019;
+                    for (int year = from; year <= to; year += 1) {
+                        write(out, word, year, random);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void write(BufferedWriter out, String word, int year, Random random)
+            throws IOException {
+        long count = (long) Math.exp(2 + 6 * random.nextDouble());
+        out.write(word + "\t" + year + "\t" + count + "\t" + (1 + count / 3) + "\n");
+    }
+}
@@ -0,0 +1,48 @@
+package ngrams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times building an NGramMap from each words file in data/ngrams, in both
+ * storage modes, and reading total_counts.csv on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NGramLoadBenchmark {
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    /** The words file and layout to load; only load() depends on them. */
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"very_short.csv", "random_freq_10.csv", "random_freq_25.csv", "frequency-EECS.csv",
+                "less_short.csv", "words_that_start_with_q.csv"})
+        private String wordsFile;
+
+        @Param({"TREE_MAP", "COLUMNAR", "COMPRESSED"})
+        private NGramMap.StorageMode mode;
+    }
+
+    @Benchmark
+    public NGramMap load(Input input) {
+        return new NGramMap("data/ngrams/" + input.wordsFile, TOTAL_COUNTS_FILE, input.mode);
+    }
+
+    @Benchmark
+    public TimeSeries loadTotalCounts() {
+        return NGramMap.readTotalCounts(TOTAL_COUNTS_FILE);
+    }
+}
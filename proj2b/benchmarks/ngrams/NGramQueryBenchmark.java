@@ -0,0 +1,74 @@
+package ngrams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the NGramMap history queries on words_that_start_with_q.csv, over a
+ * short and a long year range. The long range starts in 1600 because
+ * total_counts.csv has gaps earlier (1515, for one) where some q words have
+ * counts, and weight queries over those years throw.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NGramQueryBenchmark {
+    private static final List<String> WORDS = List.of("quantity", "quasar", "quixotic", "qwerty",
+            "quack", "quaint", "quality", "quarter", "queen", "question");
+
+    @Param({"TREE_MAP", "COLUMNAR", "COMPRESSED"})
+    private NGramMap.StorageMode mode;
+
+    /** First year of the queried range; every range ends in 2019. */
+    @Param({"2000", "1600"})
+    private int startYear;
+
+    private NGramMap ngm;
+
+    @Setup
+    public void setUp() {
+        ngm = new NGramMap("data/ngrams/words_that_start_with_q.csv",
+                "data/ngrams/total_counts.csv", mode);
+    }
+
+    @Benchmark
+    public TimeSeries countHistory() {
+        return ngm.countHistory("question", startYear, 2019);
+    }
+
+    @Benchmark
+    public double countSum() {
+        return ngm.countSum("question", startYear, 2019);
+    }
+
+    @Benchmark
+    public TimeSeries weightHistory() {
+        return ngm.weightHistory("question", startYear, 2019);
+    }
+
+    @Benchmark
+    public TimeSeries summedWeightHistory() {
+        return ngm.summedWeightHistory(WORDS, startYear, 2019);
+    }
+
+    /** The long range takes 10-year buckets, answered from the cached weight pyramids. */
+    @Benchmark
+    public TimeSeries summedWeightHistory50Points() {
+        return ngm.summedWeightHistory(WORDS, startYear, 2019, 50);
+    }
+}
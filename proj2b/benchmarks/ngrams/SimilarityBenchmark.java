@@ -0,0 +1,70 @@
+package ngrams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times exact and approximate similarity lookups over generated words, 1900
+ * to 2019 in 5-year points. Words come in groups of 20 that share a random
+ * shape up to 5% noise, so every query has strongly correlated neighbors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimilarityBenchmark {
+    @Param({"10000", "100000"})
+    private int words;
+
+    private SimilarityIndex index;
+    private List<String> query;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(61);
+        NGramMap ngm = new NGramMap("data/ngrams/very_short.csv", "data/ngrams/total_counts.csv",
+                NGramMap.StorageMode.COLUMNAR);
+        NGramMap.Update update = new NGramMap.Update();
+        double[] shape = new double[24];
+        for (int w = 0; w < words; w += 1) {
+            if (w % 20 == 0) {
+                for (int i = 0; i < shape.length; i += 1) {
+                    shape[i] = 1 + random.nextDouble();
+                }
+            }
+            for (int year = 1900; year <= 2019; year += 1) {
+                double total = ngm.totalCountHistory().get(year);
+                double noise = 1 + 0.05 * random.nextGaussian();
+                update.put("w" + w, year, Math.rint(shape[(year - 1900) / 5] * noise * total / 1e6));
+            }
+        }
+        ngm.apply(update);
+        index = SimilarityIndex.build(ngm, 1900, 2019, 5, SimilarityIndex.Metric.PEARSON, true);
+        query = List.of("w" + (words / 2));
+    }
+
+    @Benchmark
+    public List<SimilarityIndex.Match> exact() {
+        return index.similar(query, 10);
+    }
+
+    @Benchmark
+    public List<SimilarityIndex.Match> approximate() {
+        return index.approximateSimilar(query, 10);
+    }
+}
@@ -0,0 +1,102 @@
+package ngrams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares TreeMap-backed TimeSeries arithmetic with DenseTimeSeries on
+ * WORDS synthetic histories covering YEARS consecutive years each.
+ * Run it through main.BenchmarkRunner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSeriesBenchmark {
+    @Param({"100", "600"})
+    private int years;
+
+    @Param({"10"})
+    private int words;
+
+    private List<TimeSeries> counts;
+    private TimeSeries totals;
+    private List<DenseTimeSeries> denseCounts;
+    private DenseTimeSeries denseTotals;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(61);
+        int first = TimeSeries.MAX_YEAR - years + 1;
+        counts = new ArrayList<>();
+        denseCounts = new ArrayList<>();
+        for (int w = 0; w < words; w += 1) {
+            TimeSeries ts = new TimeSeries();
+            for (int year = first; year <= TimeSeries.MAX_YEAR; year += 1) {
+                ts.put(year, (double) random.nextInt(1_000_000));
+            }
+            counts.add(ts);
+            denseCounts.add(DenseTimeSeries.of(ts));
+        }
+        totals = new TimeSeries();
+        for (int year = TimeSeries.MIN_YEAR; year <= TimeSeries.MAX_YEAR; year += 1) {
+            totals.put(year, 1e9 + random.nextInt(1_000_000));
+        }
+        denseTotals = DenseTimeSeries.of(totals);
+    }
+
+    @Benchmark
+    public TimeSeries treeMapPlus() {
+        return counts.get(0).plus(counts.get(1));
+    }
+
+    @Benchmark
+    public DenseTimeSeries densePlus() {
+        return denseCounts.get(0).plus(denseCounts.get(1));
+    }
+
+    @Benchmark
+    public TimeSeries treeMapDividedBy() {
+        return counts.get(0).dividedBy(totals);
+    }
+
+    @Benchmark
+    public DenseTimeSeries denseDividedBy() {
+        return denseCounts.get(0).dividedBy(denseTotals);
+    }
+
+    /** What summedWeightHistory used to do: divide each word, then chain plus. */
+    @Benchmark
+    public TimeSeries treeMapSummedWeights() {
+        TimeSeries sum = new TimeSeries();
+        for (TimeSeries ts : counts) {
+            sum = sum.plus(ts.dividedBy(totals));
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public DenseTimeSeries denseSummedWeights() {
+        List<DenseTimeSeries> weights = new ArrayList<>(words);
+        for (DenseTimeSeries ts : denseCounts) {
+            weights.add(ts.dividedBy(denseTotals));
+        }
+        return DenseTimeSeries.summed(weights);
+    }
+}
@@ -0,0 +1,51 @@
+package ngrams;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times autocomplete on words_that_start_with_q.csv for prefixes matching
+ * most, some and few of its words, and a lookup of a word the map does not
+ * have, which the Bloom filter answers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordIndexBenchmark {
+    @Param({"q", "qua", "quix"})
+    private String prefix;
+
+    private NGramMap ngm;
+
+    @Setup
+    public void setUp() {
+        ngm = new NGramMap("data/ngrams/words_that_start_with_q.csv",
+                "data/ngrams/total_counts.csv", NGramMap.StorageMode.COLUMNAR);
+        ngm.autocomplete("", 1);
+    }
+
+    @Benchmark
+    public List<String> autocomplete() {
+        return ngm.autocomplete(prefix, 10);
+    }
+
+    @Benchmark
+    public double countSumUnknownWord() {
+        return ngm.countSum("zebra", 1900, 2019);
+    }
+}
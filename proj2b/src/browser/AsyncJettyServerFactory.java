@@ -0,0 +1,39 @@
+package browser;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+/**
+ * Creates the same Jetty servers as Spark's default factory, except that the
+ * handler Spark installs is wrapped by an AsyncQueryDispatcher.
+ */
+class AsyncJettyServerFactory implements JettyServerFactory {
+    private final AsyncQueryDispatcher dispatcher;
+
+    AsyncJettyServerFactory(AsyncQueryDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+        if (maxThreads <= 0) {
+            return create(null);
+        }
+        return create(new QueuedThreadPool(maxThreads, minThreads > 0 ? minThreads : 8,
+                threadTimeoutMillis > 0 ? threadTimeoutMillis : 60000));
+    }
+
+    @Override
+    public Server create(ThreadPool threadPool) {
+        return new Server(threadPool) {
+            @Override
+            public void setHandler(Handler handler) {
+                dispatcher.setHandler(handler);
+                super.setHandler(dispatcher);
+            }
+        };
+    }
+}
@@ -0,0 +1,213 @@
+package browser;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import spark.QueryParamsMap;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Jetty handler that sits in front of Spark and runs the query routes
+ * registered with it on a bounded worker pool. The request is put into
+ * servlet async mode, so the Jetty thread returns to its pool as soon as the
+ * query is queued; a worker writes the response when the query finishes.
+ *
+ * Requests are shed with 503 Service Unavailable when every worker is busy
+ * and the queue is full, or when a query runs longer than the timeout. A
+ * timed-out query that already started still runs to the end on its worker;
+ * see Work. Any other request is passed on to Spark unchanged.
+ */
+class AsyncQueryDispatcher extends HandlerWrapper {
+    private final Map<String, NgordnetQueryHandler> routes = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+
+    AsyncQueryDispatcher(int workers, int maxQueued, long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threads = r -> {
+            Thread t = new Thread(r, "ngordnet-query-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), threads, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** Serves GET requests for URL with NQH. */
+    void register(String url, NgordnetQueryHandler nqh) {
+        routes.put(url.startsWith("/") ? url : "/" + url, nqh);
+    }
+
+    /** Returns the number of queries waiting for a worker. */
+    int queued() {
+        return executor.getQueue().size();
+    }
+
+    /** Returns the number of queries being run by a worker. */
+    int running() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException, javax.servlet.ServletException {
+        NgordnetQueryHandler nqh = "GET".equals(request.getMethod()) ? routes.get(target) : null;
+        if (nqh == null) {
+            super.handle(target, baseRequest, request, response);
+            return;
+        }
+        baseRequest.setHandled(true);
+        QueryMetrics.Route metrics = nqh instanceof InstrumentedQueryHandler i ? i.route() : null;
+
+        long parseStart = System.nanoTime();
+        NgordnetQuery query;
+        try {
+            query = NgordnetQueryHandler.readQueryMap(new QueryParamsMap(request));
+        } catch (RuntimeException e) {
+            send(response, HttpServletResponse.SC_BAD_REQUEST, "Malformed query");
+            return;
+        }
+        long queuedAt = System.nanoTime();
+        if (metrics != null) {
+            metrics.recordStage(QueryStage.PARSE, queuedAt - parseStart);
+        }
+
+        AsyncContext ctx = request.startAsync();
+        ctx.setTimeout(timeoutMillis);
+        AtomicBoolean finished = new AtomicBoolean();
+        Work work = new Work();
+        // Listen before submitting, so a timeout or error is seen even if the worker is quick.
+        ctx.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                complete(ctx, finished, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Query timed out");
+                work.cancel();
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) { }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                work.cancel();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) { }
+        });
+        try {
+            work.set(executor.submit(() -> {
+                if (finished.get()) {
+                    return;
+                }
+                if (metrics != null) {
+                    metrics.recordStage(QueryStage.QUEUE, System.nanoTime() - queuedAt);
+                }
+                int status = HttpServletResponse.SC_OK;
+                byte[] body;
+                try {
+                    body = nqh.handleAsJson(query);
+                } catch (RuntimeException e) {
+                    status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+                    body = "Query failed".getBytes(StandardCharsets.UTF_8);
+                }
+                complete(ctx, finished, status, body);
+            }));
+        } catch (RejectedExecutionException e) {
+            complete(ctx, finished, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy");
+            return;
+        }
+    }
+
+    /**
+     * The submitted query of one request, which the listener may cancel before
+     * or after it is published. A query that has not started yet never runs.
+     * One that is running keeps its worker until the handler returns, because
+     * handlers do not check for interrupts; such queries are bounded by the
+     * pool, since while they hold every worker new queries wait in the bounded
+     * queue and are then shed with 503.
+     */
+    private static final class Work {
+        private volatile Future<?> future;
+        private volatile boolean cancelled;
+
+        void set(Future<?> submitted) {
+            future = submitted;
+            if (cancelled) {
+                submitted.cancel(true);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            Future<?> submitted = future;
+            if (submitted != null) {
+                submitted.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Writes the response and completes CTX, unless another thread already did.
+     * The whole write happens under FINISHED's lock, so a timeout that loses
+     * to the worker waits until the worker has completed CTX; Jetty would
+     * otherwise answer with its own error page once onTimeout returns.
+     */
+    private static void complete(AsyncContext ctx, AtomicBoolean finished, int status, String body) {
+        complete(ctx, finished, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void complete(AsyncContext ctx, AtomicBoolean finished, int status, byte[] body) {
+        synchronized (finished) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                send((HttpServletResponse) ctx.getResponse(), status, body);
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone away; there is nobody left to tell.
+            } finally {
+                ctx.complete();
+            }
+        }
+    }
+
+    private static void send(HttpServletResponse response, int status, String body)
+            throws IOException {
+        send(response, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpServletResponse response, int status, byte[] bytes)
+            throws IOException {
+        response.setStatus(status);
+        response.setHeader("Access-Control-Allow-Origin", "*");
+        response.setContentType(status == HttpServletResponse.SC_OK
+                ? "application/json;charset=utf-8" : "text/plain;charset=utf-8");
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    /** Stops accepting queries and lets queued ones drain. */
+    @Override
+    protected void doStop() throws Exception {
+        executor.shutdown();
+        super.doStop();
+    }
+}
@@ -0,0 +1,168 @@
+package browser;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Answers many queries for one handler in a single POST. The body is a JSON
+ * array of queries:
+ * <pre>
+ *   [{"words": ["food", "cake"], "startYear": 1950, "endYear": 1990, "k": 5}, ...]
+ * </pre>
+ * Missing years and k take the same defaults as a GET query. The queries run
+ * concurrently and each answer is streamed back as soon as it is ready, one
+ * JSON object per line:
+ * <pre>
+ *   {"index": 3, "result": ...}
+ *   {"index": 0, "error": "..."}
+ * </pre>
+ * Identical queries in a batch are computed once. Queries that share work
+ * beyond that (the same hyponym roots, the same years) benefit from the
+ * caches inside WordNet and NGramMap, which all queries of the batch share.
+ *
+ * The executor should have a bounded queue. A batch whose queries do not all
+ * fit is turned away whole with 503 Service Unavailable, so one client
+ * cannot queue work without limit ahead of everybody else.
+ */
+class BatchQueryRoute implements Route {
+    /** Largest number of queries accepted in one batch. */
+    static final int MAX_BATCH = 1000;
+
+    private static final Gson gson = new Gson();
+
+    /** One query as it appears in the request body. */
+    private static class BatchItem {
+        List<String> words;
+        Integer startYear;
+        Integer endYear;
+        Integer k;
+
+        /** Returns the query, or null if WORDS holds a null. */
+        NgordnetQuery toQuery() {
+            List<String> trimmed = new ArrayList<>();
+            if (words != null) {
+                for (String word : words) {
+                    if (word == null) {
+                        return null;
+                    }
+                    trimmed.add(word.trim());
+                }
+            }
+            return new NgordnetQuery(trimmed,
+                    startYear == null ? 1900 : startYear,
+                    endYear == null ? 2020 : endYear,
+                    k == null ? 0 : k);
+        }
+    }
+
+    private final NgordnetQueryHandler nqh;
+    private final ExecutorService executor;
+
+    BatchQueryRoute(NgordnetQueryHandler nqh, ExecutorService executor) {
+        this.nqh = nqh;
+        this.executor = executor;
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        BatchItem[] items;
+        try {
+            items = gson.fromJson(request.body(), BatchItem[].class);
+        } catch (JsonParseException e) {
+            response.status(400);
+            return "Body must be a JSON array of queries";
+        }
+        if (items == null) {
+            items = new BatchItem[0];
+        }
+        if (items.length > MAX_BATCH) {
+            response.status(413);
+            return "At most " + MAX_BATCH + " queries per batch";
+        }
+
+        // Submit each distinct query once and remember which indices want it.
+        CompletionService<byte[]> completion = new ExecutorCompletionService<>(executor);
+        Map<NgordnetQuery, Future<byte[]>> submitted = new HashMap<>();
+        Map<Future<byte[]>, List<Integer>> waiting = new HashMap<>();
+        List<Integer> invalid = new ArrayList<>();
+        for (int i = 0; i < items.length; i += 1) {
+            NgordnetQuery q = items[i] == null ? null : items[i].toQuery();
+            if (q == null) {
+                invalid.add(i);
+                continue;
+            }
+            Future<byte[]> future = submitted.get(q);
+            if (future == null) {
+                try {
+                    future = completion.submit(() -> nqh.handleAsJson(q));
+                } catch (RejectedExecutionException e) {
+                    for (Future<byte[]> queued : submitted.values()) {
+                        queued.cancel(true);
+                    }
+                    response.status(503);
+                    return "Server busy";
+                }
+                submitted.put(q, future);
+            }
+            waiting.computeIfAbsent(future, f -> new ArrayList<>()).add(i);
+        }
+
+        response.status(200);
+        response.type("application/x-ndjson;charset=utf-8");
+        OutputStream out = response.raw().getOutputStream();
+        try {
+            for (int index : invalid) {
+                writeLine(out, index, null, "Not a query");
+            }
+            for (int done = 0; done < waiting.size(); done += 1) {
+                Future<byte[]> future = completion.take();
+                byte[] json = null;
+                String error = null;
+                try {
+                    json = future.get();
+                } catch (ExecutionException e) {
+                    error = "Query failed";
+                }
+                for (int index : waiting.get(future)) {
+                    writeLine(out, index, json, error);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client disconnected; stop whatever is still running.
+            for (Future<byte[]> future : waiting.keySet()) {
+                future.cancel(true);
+            }
+        }
+        return "";
+    }
+
+    private static void writeLine(OutputStream out, int index, byte[] json, String error)
+            throws IOException {
+        out.write(("{\"index\":" + index).getBytes(StandardCharsets.UTF_8));
+        if (json != null) {
+            out.write(",\"result\":".getBytes(StandardCharsets.UTF_8));
+            out.write(json);
+        } else {
+            out.write((",\"error\":" + gson.toJson(error)).getBytes(StandardCharsets.UTF_8));
+        }
+        out.write("}\n".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,133 @@
+package browser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Wraps another NgordnetQueryHandler and remembers its serialized JSON
+ * responses. Queries are normalized before lookup (words trimmed and sorted),
+ * so only wrap handlers whose answer does not depend on the order of the
+ * words, such as hyponyms. Entries expire after a fixed time to live, and the
+ * least recently used ones are evicted once the cached responses exceed the
+ * byte budget. If the delegate reads data that can change, pass a version
+ * supplier: responses are stored under the version read before computing
+ * them, so after an update every lookup misses until it is recomputed.
+ *
+ * Two identical queries that miss at the same time are both computed.
+ */
+public class CachingQueryHandler extends NgordnetQueryHandler {
+    /** A snapshot of the cache counters. */
+    public record Stats(long hits, long misses, long evictions, long expirations,
+                        int entries, long bytes) {
+        /** Returns hits / (hits + misses), or 0 if there were no lookups. */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private record Entry(byte[] json, long expiresAt) {}
+
+    /** A normalized query and the data version it was answered from. */
+    private record Key(NgordnetQuery query, long version) {}
+
+    private final NgordnetQueryHandler delegate;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final LongSupplier version;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Caches up to MAXBYTES of DELEGATE's responses, each for at most
+     * TTLMILLIS milliseconds.
+     */
+    public CachingQueryHandler(NgordnetQueryHandler delegate, long maxBytes, long ttlMillis) {
+        this(delegate, maxBytes, ttlMillis, () -> 0);
+    }
+
+    /**
+     * Same as above, but a response is only reused while VERSION returns the
+     * value it returned before the response was computed.
+     */
+    public CachingQueryHandler(NgordnetQueryHandler delegate, long maxBytes, long ttlMillis,
+                               LongSupplier version) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.version = version;
+    }
+
+    /** Returns Q with its words trimmed and sorted. */
+    static NgordnetQuery normalize(NgordnetQuery q) {
+        List<String> words = new ArrayList<>(q.words().size());
+        for (String word : q.words()) {
+            words.add(word.trim());
+        }
+        Collections.sort(words);
+        return new NgordnetQuery(words, q.startYear(), q.endYear(), q.k());
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        return delegate.handle(normalize(q));
+    }
+
+    @Override
+    public byte[] handleAsJson(NgordnetQuery q) {
+        Key key = new Key(normalize(q), version.getAsLong());
+        byte[] json = lookup(key);
+        if (json == null) {
+            json = delegate.handleAsJson(key.query());
+            store(key, json);
+        }
+        return json;
+    }
+
+    private synchronized byte[] lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() - System.nanoTime() < 0) {
+            entries.remove(key);
+            bytes -= entry.json().length;
+            expirations += 1;
+            entry = null;
+        }
+        if (entry == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return entry.json();
+    }
+
+    private synchronized void store(Key key, byte[] json) {
+        if (json.length > maxBytes) {
+            return;
+        }
+        Entry old = entries.put(key, new Entry(json, System.nanoTime() + ttlNanos));
+        if (old != null) {
+            bytes -= old.json().length;
+        }
+        bytes += json.length;
+        Iterator<Map.Entry<Key, Entry>> iter = entries.entrySet().iterator();
+        while (bytes > maxBytes && iter.hasNext()) {
+            bytes -= iter.next().getValue().json().length;
+            iter.remove();
+            evictions += 1;
+        }
+    }
+
+    /** Returns the current counters. */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, expirations, entries.size(), bytes);
+    }
+}
@@ -0,0 +1,67 @@
+package browser;
+
+import spark.Request;
+import spark.Response;
+
+/**
+ * Wraps another NgordnetQueryHandler and records every query it answers in a
+ * QueryMetrics.Route: latency, in-flight count, failures and allocated
+ * bytes. While the query runs, QueryStage timings on the same thread are
+ * charged to that route too.
+ */
+class InstrumentedQueryHandler extends NgordnetQueryHandler {
+    private final NgordnetQueryHandler delegate;
+    private final QueryMetrics.Route route;
+
+    InstrumentedQueryHandler(NgordnetQueryHandler delegate, QueryMetrics.Route route) {
+        this.delegate = delegate;
+        this.route = route;
+    }
+
+    /** Returns the counters this handler records into. */
+    QueryMetrics.Route route() {
+        return route;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        long allocated = QueryMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        QueryMetrics.Route previous = QueryStage.bind(route);
+        route.started();
+        boolean failed = true;
+        try {
+            String result = delegate.handle(q);
+            failed = false;
+            return result;
+        } finally {
+            QueryStage.bind(previous);
+            route.finished(System.nanoTime() - start, QueryMetrics.allocatedBytes() - allocated, failed);
+        }
+    }
+
+    @Override
+    public byte[] handleAsJson(NgordnetQuery q) {
+        long allocated = QueryMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        QueryMetrics.Route previous = QueryStage.bind(route);
+        route.started();
+        boolean failed = true;
+        try {
+            byte[] json = delegate.handleAsJson(q);
+            failed = false;
+            return json;
+        } finally {
+            QueryStage.bind(previous);
+            route.finished(System.nanoTime() - start, QueryMetrics.allocatedBytes() - allocated, failed);
+        }
+    }
+
+    @Override
+    public Object handle(Request request, Response response) throws Exception {
+        long start = System.nanoTime();
+        NgordnetQuery nq = readQueryMap(request.queryMap());
+        route.recordStage(QueryStage.PARSE, System.nanoTime() - start);
+        return handleAsJson(nq);
+    }
+}
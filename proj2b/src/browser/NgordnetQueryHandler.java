@@ -6,6 +6,7 @@ import spark.Request;
 import spark.Response;
 import spark.Route;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 
@@ -21,7 +22,7 @@ public abstract class NgordnetQueryHandler implements Route {
         return Arrays.asList(requestedWords);
     }
 
-    private static NgordnetQuery readQueryMap(QueryParamsMap qm) {
+    static NgordnetQuery readQueryMap(QueryParamsMap qm) {
         List<String> words = commaSeparatedStringToList(qm.get("words").value());
 
         int startYear;
@@ -49,11 +50,19 @@ public abstract class NgordnetQueryHandler implements Route {
         return new NgordnetQuery(words, startYear, endYear, k);
     }
 
+    /** Runs Q and returns the result serialized as the UTF-8 JSON response body. */
+    public byte[] handleAsJson(NgordnetQuery q) {
+        String result = handle(q);
+        long start = System.nanoTime();
+        byte[] json = gson.toJson(result).getBytes(StandardCharsets.UTF_8);
+        QueryStage.SERIALIZE.record(start);
+        return json;
+    }
+
     @Override
-    public String handle(Request request, Response response) throws Exception {
+    public Object handle(Request request, Response response) throws Exception {
         QueryParamsMap qm = request.queryMap();
         NgordnetQuery nq = readQueryMap(qm);
-        String queryResult = handle(nq);
-        return gson.toJson(queryResult);
+        return handleAsJson(nq);
     }
 }
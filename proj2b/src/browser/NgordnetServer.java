@@ -1,13 +1,101 @@
 package browser;
 
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
 import static spark.Spark.*;
 
 /**
  * Created by hug.
  */
 public class NgordnetServer {
+    /** Queries of all batches together that may wait for a batch worker: one full batch. */
+    static final int MAX_QUEUED_BATCH_QUERIES = BatchQueryRoute.MAX_BATCH;
+
+    private final QueryMetrics metrics = new QueryMetrics();
+    private AsyncQueryDispatcher dispatcher;
+    private ExecutorService batchExecutor;
+
+    /**
+     * Switches to asynchronous query handling: every handler registered
+     * afterwards runs on a pool of WORKERS threads instead of on the Jetty
+     * request thread. At most MAXQUEUED queries wait for a worker, and a query
+     * that takes longer than TIMEOUTMILLIS is abandoned; both cases answer
+     * 503. Must be called before startUp().
+     */
+    public void enableAsync(int workers, int maxQueued, long timeoutMillis) {
+        dispatcher = new AsyncQueryDispatcher(workers, maxQueued, timeoutMillis);
+        metrics.setLoadGauges(dispatcher::queued, dispatcher::running);
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory(new AsyncJettyServerFactory(dispatcher)));
+    }
+
+    /**
+     * Serves GET requests for URL with NQH. Every query is timed and counted
+     * under URL on /metrics.
+     */
     public void register(String URL, NgordnetQueryHandler nqh) {
-        get(URL, nqh);
+        nqh = new InstrumentedQueryHandler(nqh, metrics.route(URL));
+        if (dispatcher != null) {
+            dispatcher.register(URL, nqh);
+        } else {
+            get(URL, nqh);
+        }
+    }
+
+    /**
+     * Registers NQH for URL behind a CachingQueryHandler that keeps up to
+     * MAXCACHEBYTES of responses for TTLMILLIS each. Returns the caching
+     * handler so that its stats() can be read.
+     */
+    public CachingQueryHandler register(String URL, NgordnetQueryHandler nqh,
+                                        long maxCacheBytes, long ttlMillis) {
+        return register(URL, nqh, maxCacheBytes, ttlMillis, () -> 0);
+    }
+
+    /**
+     * Same as above, but cached responses are only served while DATAVERSION
+     * is unchanged, e.g. NGramMap::version for handlers that read counts.
+     */
+    public CachingQueryHandler register(String URL, NgordnetQueryHandler nqh,
+                                        long maxCacheBytes, long ttlMillis,
+                                        LongSupplier dataVersion) {
+        CachingQueryHandler cached = new CachingQueryHandler(nqh, maxCacheBytes, ttlMillis,
+                dataVersion);
+        register(URL, cached);
+        return cached;
+    }
+
+    /**
+     * Registers a POST route at URL that runs a JSON array of queries against
+     * NQH concurrently and streams the answers back as JSON lines. All batch
+     * routes share one pool with room for MAX_QUEUED_BATCH_QUERIES waiting
+     * queries; a batch that does not fit is answered with 503. See
+     * BatchQueryRoute for the formats.
+     */
+    public void registerBatch(String URL, NgordnetQueryHandler nqh) {
+        if (batchExecutor == null) {
+            int workers = Runtime.getRuntime().availableProcessors();
+            batchExecutor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(MAX_QUEUED_BATCH_QUERIES), r -> {
+                        Thread t = new Thread(r, "ngordnet-batch");
+                        t.setDaemon(true);
+                        return t;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+        }
+        post(URL, new BatchQueryRoute(new InstrumentedQueryHandler(nqh, metrics.route(URL)),
+                batchExecutor));
+    }
+
+    /** Returns the counters served on /metrics. */
+    public QueryMetrics metrics() {
+        return metrics;
     }
 
     public void startUp() {
@@ -20,5 +108,10 @@ public class NgordnetServer {
             response.header("Access-Control-Request-Method", "*");
             response.header("Access-Control-Allow-Headers", "*");
         });
+
+        get("/metrics", (request, response) -> {
+            response.type("text/plain; version=0.0.4; charset=utf-8");
+            return metrics.scrape();
+        });
     }
 }
@@ -0,0 +1,214 @@
+package browser;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Latency, load and allocation counters for the query routes of one
+ * NgordnetServer, rendered in the Prometheus text format by scrape(). Each
+ * route reports the 50th, 99th and 99.9th percentile of its query latency,
+ * the same percentiles for every QueryStage it went through, the number of
+ * queries in flight, failures, and the bytes its queries allocated; rate()
+ * over the last one is the route's allocation rate. With async handling on,
+ * the number of queued and running queries is reported as well.
+ *
+ * Latencies are measured from the moment the handler is called, so time spent
+ * waiting for a worker only shows up in the queue stage.
+ */
+public final class QueryMetrics {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final Map<String, Route> routes = new ConcurrentSkipListMap<>();
+    private volatile IntSupplier queued;
+    private volatile IntSupplier running;
+
+    /** The counters of one route. */
+    static final class Route {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram[] stages = new LatencyHistogram[QueryStage.values().length];
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+
+        private Route(String name) {
+            this.name = name;
+            for (int i = 0; i < stages.length; i += 1) {
+                stages[i] = new LatencyHistogram();
+            }
+        }
+
+        /** Returns the name the route was registered under. */
+        String name() {
+            return name;
+        }
+
+        void recordStage(QueryStage stage, long nanos) {
+            stages[stage.ordinal()].record(nanos);
+        }
+
+        void started() {
+            inFlight.incrementAndGet();
+        }
+
+        /**
+         * Records a query that took NANOS and allocated ALLOCATED bytes, or a
+         * negative number if allocations are not measured.
+         */
+        void finished(long nanos, long allocated, boolean failed) {
+            inFlight.decrementAndGet();
+            latency.record(nanos);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+            if (allocated > 0) {
+                allocatedBytes.addAndGet(allocated);
+            }
+        }
+
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        long count() {
+            return latency.count();
+        }
+
+        long errors() {
+            return errors.get();
+        }
+
+        /** Returns latency quantile Q in nanoseconds. */
+        long quantile(double q) {
+            return latency.quantile(q);
+        }
+
+        long stageCount(QueryStage stage) {
+            return stages[stage.ordinal()].count();
+        }
+    }
+
+    /** Returns the counters for the route named NAME, creating them on first use. */
+    Route route(String name) {
+        String key = name.startsWith("/") ? name : "/" + name;
+        return routes.computeIfAbsent(key, Route::new);
+    }
+
+    /** Reports QUEUED and RUNNING as the number of waiting and running queries. */
+    void setLoadGauges(IntSupplier queued, IntSupplier running) {
+        this.queued = queued;
+        this.running = running;
+    }
+
+    /**
+     * Returns the number of bytes the current thread has allocated so far, or
+     * -1 if the JVM does not keep count.
+     */
+    static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    /** Returns every counter in the Prometheus text exposition format. */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+
+        header(out, "ngordnet_request_duration_seconds", "summary",
+                "Time spent answering a query, from the handler's point of view.");
+        for (Route route : routes.values()) {
+            summary(out, "ngordnet_request_duration_seconds", labels(route, null), route.latency);
+        }
+
+        header(out, "ngordnet_stage_duration_seconds", "summary",
+                "Time spent in each stage of answering a query.");
+        for (Route route : routes.values()) {
+            for (QueryStage stage : QueryStage.values()) {
+                LatencyHistogram h = route.stages[stage.ordinal()];
+                if (h.count() > 0) {
+                    summary(out, "ngordnet_stage_duration_seconds", labels(route, stage), h);
+                }
+            }
+        }
+
+        header(out, "ngordnet_requests_in_flight", "gauge", "Queries being answered right now.");
+        for (Route route : routes.values()) {
+            sample(out, "ngordnet_requests_in_flight", labels(route, null), route.inFlight.get());
+        }
+
+        header(out, "ngordnet_request_errors_total", "counter", "Queries whose handler threw.");
+        for (Route route : routes.values()) {
+            sample(out, "ngordnet_request_errors_total", labels(route, null), route.errors.get());
+        }
+
+        if (THREADS != null) {
+            header(out, "ngordnet_allocated_bytes_total", "counter",
+                    "Bytes allocated by the threads answering queries.");
+            for (Route route : routes.values()) {
+                sample(out, "ngordnet_allocated_bytes_total", labels(route, null),
+                        route.allocatedBytes.get());
+            }
+        }
+
+        IntSupplier queued = this.queued;
+        IntSupplier running = this.running;
+        if (queued != null && running != null) {
+            header(out, "ngordnet_queries_queued", "gauge", "Queries waiting for a worker.");
+            sample(out, "ngordnet_queries_queued", "", queued.getAsInt());
+            header(out, "ngordnet_queries_running", "gauge", "Queries being run by a worker.");
+            sample(out, "ngordnet_queries_running", "", running.getAsInt());
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String metric, String type, String help) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String metric, String labels, LatencyHistogram h) {
+        for (double q : QUANTILES) {
+            sample(out, metric, labels + ",quantile=\"" + q + "\"", h.quantile(q) / 1e9);
+        }
+        sample(out, metric + "_sum", labels, h.sum() / 1e9);
+        sample(out, metric + "_count", labels, h.count());
+    }
+
+    private static void sample(StringBuilder out, String metric, String labels, double value) {
+        out.append(metric);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String labels(Route route, QueryStage stage) {
+        String labels = "route=\"" + escape(route.name) + "\"";
+        if (stage != null) {
+            labels += ",stage=\"" + stage.label() + "\"";
+        }
+        return labels;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,58 @@
+package browser;
+
+/**
+ * The parts of answering a query whose durations are reported separately on
+ * /metrics. Handlers time a stage with
+ * <pre>
+ *   long start = System.nanoTime();
+ *   ...
+ *   QueryStage.NGRAMS.record(start);
+ * </pre>
+ * The duration is charged to the route whose query is running on the current
+ * thread. Outside a measured query, for example in tests, record does nothing.
+ */
+public enum QueryStage {
+    /** Waiting for a worker thread. */
+    QUEUE("queue"),
+    /** Reading the query parameters. */
+    PARSE("parse"),
+    /** Walking the WordNet graph. */
+    WORDNET("wordnet"),
+    /** Looking up counts and histories in the NGramMap. */
+    NGRAMS("ngrams"),
+    /** Rasterizing and encoding a chart. */
+    RENDER("render"),
+    /** Turning the answer into the JSON response body. */
+    SERIALIZE("serialize");
+
+    private static final ThreadLocal<QueryMetrics.Route> CURRENT = new ThreadLocal<>();
+
+    private final String label;
+
+    QueryStage(String label) {
+        this.label = label;
+    }
+
+    /** Returns the name of this stage as it appears on /metrics. */
+    public String label() {
+        return label;
+    }
+
+    /** Charges the time since STARTNANOS, a System.nanoTime() reading, to this stage. */
+    public void record(long startNanos) {
+        QueryMetrics.Route route = CURRENT.get();
+        if (route != null) {
+            route.recordStage(this, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Makes ROUTE the one charged by record on this thread, and returns the
+     * route that was charged before, so that nested measurements can restore it.
+     */
+    static QueryMetrics.Route bind(QueryMetrics.Route route) {
+        QueryMetrics.Route previous = CURRENT.get();
+        CURRENT.set(route);
+        return previous;
+    }
+}
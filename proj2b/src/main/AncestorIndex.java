@@ -0,0 +1,173 @@
+package main;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The upward view of the hyponym DAG: each node's direct parents (its
+ * hypernyms), its depth, and every node above it ranked by depth.
+ *
+ * A node's depth is the length of the longest path down to it from a root,
+ * so every proper ancestor of a node is strictly shallower than the node.
+ * Walking a node's ancestor list deepest first therefore meets a common
+ * ancestor before any of that ancestor's own ancestors, and the first node
+ * that passes a DescendantIndex check for the other query nodes is a lowest
+ * common ancestor. Each check is a binary search over interval labels, and
+ * WordNet's ancestor lists are short (a few dozen nodes at most), so these
+ * queries never traverse the graph.
+ */
+final class AncestorIndex {
+    private final IntAdjacency parents;
+    private final int[] depth;
+    /* Node v's ancestors, itself included, are ancestors[offsets[v] .. offsets[v + 1]), deepest first. */
+    private final int[] offsets;
+    private final int[] ancestors;
+
+    /** Indexes the nodes 0 .. NODES - 1 of GRAPH, which must be acyclic. */
+    AncestorIndex(IntAdjacency graph, int nodes) {
+        IntAdjacency.Builder reverse = new IntAdjacency.Builder();
+        int[] indegree = new int[nodes];
+        for (int v = 0; v < nodes; v += 1) {
+            for (int e = graph.start(v); e < graph.end(v); e += 1) {
+                int child = graph.values()[e];
+                reverse.add(child, v);
+                indegree[child] += 1;
+            }
+        }
+        parents = reverse.build(nodes);
+
+        // Kahn's algorithm: every node is finished after all of its parents.
+        depth = new int[nodes];
+        int[] order = new int[nodes];
+        int head = 0;
+        int tail = 0;
+        for (int v = 0; v < nodes; v += 1) {
+            if (indegree[v] == 0) {
+                order[tail++] = v;
+            }
+        }
+        int[][] above = new int[nodes][];
+        long total = 0;
+        while (head < tail) {
+            int v = order[head++];
+            above[v] = merge(v, parents, above);
+            total += above[v].length;
+            for (int e = graph.start(v); e < graph.end(v); e += 1) {
+                int child = graph.values()[e];
+                depth[child] = Math.max(depth[child], depth[v] + 1);
+                indegree[child] -= 1;
+                if (indegree[child] == 0) {
+                    order[tail++] = child;
+                }
+            }
+        }
+        if (tail < nodes) {
+            throw new IllegalArgumentException("Hyponym graph has a cycle");
+        }
+
+        offsets = new int[nodes + 1];
+        ancestors = new int[Math.toIntExact(total)];
+        int maxDepth = 0;
+        for (int d : depth) {
+            maxDepth = Math.max(maxDepth, d);
+        }
+        int write = 0;
+        for (int v = 0; v < nodes; v += 1) {
+            offsets[v] = write;
+            long[] ranked = new long[above[v].length];
+            for (int i = 0; i < ranked.length; i += 1) {
+                int a = above[v][i];
+                ranked[i] = ((long) (maxDepth - depth[a]) << 32) | a;
+            }
+            Arrays.sort(ranked);
+            for (long r : ranked) {
+                ancestors[write++] = (int) r;
+            }
+        }
+        offsets[nodes] = write;
+    }
+
+    /** Returns V and the ancestors of its parents, sorted by node and free of duplicates. */
+    private static int[] merge(int v, IntAdjacency parents, int[][] above) {
+        int size = 1;
+        for (int e = parents.start(v); e < parents.end(v); e += 1) {
+            size += above[parents.values()[e]].length;
+        }
+        int[] all = new int[size];
+        all[0] = v;
+        int n = 1;
+        for (int e = parents.start(v); e < parents.end(v); e += 1) {
+            int[] list = above[parents.values()[e]];
+            System.arraycopy(list, 0, all, n, list.length);
+            n += list.length;
+        }
+        Arrays.sort(all);
+        int write = 0;
+        for (int i = 0; i < all.length; i += 1) {
+            if (i == 0 || all[i] != all[i - 1]) {
+                all[write++] = all[i];
+            }
+        }
+        return Arrays.copyOf(all, write);
+    }
+
+    /** Returns the direct parents of every node: the reverse of the hyponym graph. */
+    IntAdjacency parents() {
+        return parents;
+    }
+
+    /** Returns the length of the longest path from a root to NODE. */
+    int depth(int node) {
+        return depth[node];
+    }
+
+    /** Returns the number of nodes NODE descends from, including itself. */
+    int ancestorCount(int node) {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    /**
+     * Returns the deepest ancestor of NODE (or NODE itself) that satisfies
+     * COMMON, the lowest-numbered among equally deep ones, or -1 if none does.
+     */
+    int deepest(int node, IntPredicate common) {
+        for (int i = offsets[node]; i < offsets[node + 1]; i += 1) {
+            if (common.test(ancestors[i])) {
+                return ancestors[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Writes every ancestor of NODE (including itself) into OUT, deepest
+     * first, starting at index FROM, and returns the index after the last one.
+     */
+    int ancestors(int node, int[] out, int from) {
+        int count = ancestorCount(node);
+        System.arraycopy(ancestors, offsets[node], out, from, count);
+        return from + count;
+    }
+
+    /**
+     * Returns a path from NODE up to a root that passes through the deepest
+     * parent at every step, so it is as long as the node is deep.
+     */
+    int[] chain(int node) {
+        int[] path = new int[depth[node] + 1];
+        int v = node;
+        for (int i = 0; i < path.length; i += 1) {
+            path[i] = v;
+            int next = -1;
+            for (int e = parents.start(v); e < parents.end(v); e += 1) {
+                int p = parents.values()[e];
+                if (depth[p] == depth[v] - 1) {
+                    next = p;
+                    break;
+                }
+            }
+            v = next;
+        }
+        return path;
+    }
+}
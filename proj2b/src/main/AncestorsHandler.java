@@ -0,0 +1,32 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Lists, alphabetically, the words of the lowest common ancestor of the query
+ * words, the closest synset above all of them. Serves the "common ancestors"
+ * button of the web UI.
+ */
+public class AncestorsHandler extends NgordnetQueryHandler {
+    private final WordNet wordNet;
+
+    public AncestorsHandler(WordNet wordNet) {
+        this.wordNet = wordNet;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        long start = System.nanoTime();
+        List<String> ancestor = new ArrayList<>(wordNet.lowestCommonAncestor(new HashSet<>(q.words())));
+        QueryStage.WORDNET.record(start);
+        Collections.sort(ancestor);
+        return ancestor.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+import com.google.gson.Gson;
+import ngrams.NGramMap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Suggests completions for the last query word as it is typed: the words of
+ * the NGramMap that start with it, most frequent first. k limits the number
+ * of suggestions and defaults to DEFAULT_SUGGESTIONS. The response is a JSON
+ * array of words.
+ */
+public class AutocompleteHandler extends NgordnetQueryHandler {
+    /** The number of suggestions returned when the query has no k. */
+    public static final int DEFAULT_SUGGESTIONS = 10;
+
+    private static final Gson gson = new Gson();
+
+    private final NGramMap ngm;
+
+    public AutocompleteHandler(NGramMap map) {
+        this.ngm = map;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        List<String> words = q.words();
+        String prefix = words.isEmpty() ? "" : words.get(words.size() - 1);
+        int k = q.k() > 0 ? q.k() : DEFAULT_SUGGESTIONS;
+
+        long start = System.nanoTime();
+        List<String> suggestions = ngm.autocomplete(prefix, k);
+        QueryStage.NGRAMS.record(start);
+        return gson.toJson(suggestions);
+    }
+
+    /** Sends the JSON array as is rather than wrapped in a JSON string. */
+    @Override
+    public byte[] handleAsJson(NgordnetQuery q) {
+        return handle(q).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -2,6 +2,7 @@ package main;
 
 import browser.NgordnetQueryHandler;
 import ngrams.NGramMap;
+import ngrams.WordDictionary;
 
 public class AutograderBuddy {
     /** Returns a HyponymsHandler */
@@ -9,9 +10,10 @@ public class AutograderBuddy {
             String wordFile, String countFile,
             String synsetFile, String hyponymFile) {
 
-        WordNet wn = new WordNet(synsetFile, hyponymFile);
+        WordDictionary dictionary = new WordDictionary();
+        WordNet wn = new WordNet(synsetFile, hyponymFile, dictionary);
 
-        NGramMap ngm = new NGramMap(wordFile, countFile);
+        NGramMap ngm = new NGramMap(wordFile, countFile, NGramMap.StorageMode.COLUMNAR, dictionary);
 
         return new HyponymsHandler(wn, ngm);
     }
@@ -0,0 +1,68 @@
+package main;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An LRU cache from synset ID to the sorted word IDs of every synset below it.
+ * The cache is bounded by the total number of word IDs it holds rather than
+ * by entry count, so one huge subtree cannot hide behind a small entry limit.
+ * Safe for use by several threads.
+ */
+public final class DescendantCache {
+    /** A snapshot of the cache counters. */
+    public record Stats(long hits, long misses, long evictions, int entries, long cachedWords) {
+        /** Returns hits / (hits + misses), or 0 if there were no lookups. */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private final long maxWords;
+    private final LinkedHashMap<Integer, int[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedWords;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Creates a cache that holds at most MAXWORDS word IDs in total. */
+    DescendantCache(long maxWords) {
+        this.maxWords = maxWords;
+    }
+
+    /** Returns the cached words below SYNSET, or null, and counts a hit or miss. */
+    synchronized int[] get(int synset) {
+        int[] words = entries.get(synset);
+        if (words == null) {
+            misses += 1;
+        } else {
+            hits += 1;
+        }
+        return words;
+    }
+
+    /** Caches WORDS for SYNSET, evicting least recently used entries as needed. */
+    synchronized void put(int synset, int[] words) {
+        if (words.length > maxWords) {
+            return;
+        }
+        int[] old = entries.put(synset, words);
+        if (old != null) {
+            cachedWords -= old.length;
+        }
+        cachedWords += words.length;
+        Iterator<Map.Entry<Integer, int[]>> iter = entries.entrySet().iterator();
+        while (cachedWords > maxWords && iter.hasNext()) {
+            cachedWords -= iter.next().getValue().length;
+            iter.remove();
+            evictions += 1;
+        }
+    }
+
+    /** Returns the current counters. */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, entries.size(), cachedWords);
+    }
+}
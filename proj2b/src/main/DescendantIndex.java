@@ -0,0 +1,239 @@
+package main;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reachability labels for the hyponym DAG, built once at load time.
+ *
+ * Every node gets a postorder number from a depth-first walk. In a tree, the
+ * descendants of v would be exactly the postorder range [low(v), post(v)].
+ * Nodes of a DAG can have several parents, so each node is instead labelled
+ * with a sorted list of disjoint postorder intervals: its own DFS-tree range
+ * merged with the labels of all of its children. Then u is a descendant of v
+ * (or v itself) iff post(u) falls in one of v's intervals, which a binary
+ * search over v's label answers. In WordNet almost every label is a single
+ * interval.
+ */
+class DescendantIndex {
+    private final int[] post;
+    private final int[] nodeAtPost;
+    private final int[] labelOffsets;
+    private final int[] labelLo;
+    private final int[] labelHi;
+
+    /** Labels the nodes 0 .. NODES - 1 of GRAPH, which must be acyclic. */
+    DescendantIndex(IntAdjacency graph, int nodes) {
+        post = new int[nodes];
+        nodeAtPost = new int[nodes];
+        Arrays.fill(post, -1);
+        int[] low = new int[nodes];
+
+        int[] indegree = new int[nodes];
+        for (int target : graph.values()) {
+            indegree[target] += 1;
+        }
+
+        // Labels are produced in postorder, so they are appended as nodes finish.
+        int[] offsets = new int[nodes + 1];
+        IntervalList labels = new IntervalList();
+        IntervalList merge = new IntervalList();
+
+        int[] stack = new int[nodes];
+        int[] cursor = new int[nodes];
+        boolean[] onStack = new boolean[nodes];
+        int counter = 0;
+        // Roots first, then anything left over, which can only sit on a cycle.
+        for (int pass = 0; pass < 2; pass += 1) {
+            for (int root = 0; root < nodes; root += 1) {
+                if (post[root] >= 0 || onStack[root] || (pass == 0 && indegree[root] > 0)) {
+                    continue;
+                }
+                int top = 0;
+                stack[top++] = root;
+                cursor[root] = graph.start(root);
+                onStack[root] = true;
+                low[root] = counter;
+                while (top > 0) {
+                    int v = stack[top - 1];
+                    if (cursor[v] < graph.end(v)) {
+                        int child = graph.values()[cursor[v]++];
+                        if (onStack[child]) {
+                            throw new IllegalArgumentException("Hyponym graph has a cycle at " + child);
+                        }
+                        if (post[child] < 0) {
+                            stack[top++] = child;
+                            cursor[child] = graph.start(child);
+                            onStack[child] = true;
+                            low[child] = counter;
+                        }
+                        continue;
+                    }
+                    top -= 1;
+                    onStack[v] = false;
+                    post[v] = counter;
+                    nodeAtPost[counter] = v;
+                    counter += 1;
+
+                    merge.clear();
+                    merge.add(low[v], post[v]);
+                    for (int e = graph.start(v); e < graph.end(v); e += 1) {
+                        int child = graph.values()[e];
+                        int c = post[child];
+                        for (int i = offsets[c]; i < offsets[c + 1]; i += 1) {
+                            merge.add(labels.lo[i], labels.hi[i]);
+                        }
+                    }
+                    merge.sortAndMerge();
+                    labels.addAll(merge);
+                    offsets[counter] = labels.size;
+                }
+            }
+        }
+
+        // Labels were indexed by postorder number; reindex them by node.
+        labelOffsets = new int[nodes + 1];
+        labelLo = new int[labels.size];
+        labelHi = new int[labels.size];
+        int write = 0;
+        for (int v = 0; v < nodes; v += 1) {
+            labelOffsets[v] = write;
+            int p = post[v];
+            for (int i = offsets[p]; i < offsets[p + 1]; i += 1) {
+                labelLo[write] = labels.lo[i];
+                labelHi[write] = labels.hi[i];
+                write += 1;
+            }
+        }
+        labelOffsets[nodes] = write;
+    }
+
+    private DescendantIndex(int[] post, int[] nodeAtPost, int[] labelOffsets,
+                            int[] labelLo, int[] labelHi) {
+        this.post = post;
+        this.nodeAtPost = nodeAtPost;
+        this.labelOffsets = labelOffsets;
+        this.labelLo = labelLo;
+        this.labelHi = labelHi;
+    }
+
+    /** Writes the labels to OUT, so read() can restore them without walking the graph. */
+    void write(DataOutputStream out) throws IOException {
+        IntAdjacency.writeInts(out, post);
+        IntAdjacency.writeInts(out, nodeAtPost);
+        IntAdjacency.writeInts(out, labelOffsets);
+        IntAdjacency.writeInts(out, labelLo);
+        IntAdjacency.writeInts(out, labelHi);
+    }
+
+    /** Reads labels written by write() from the position of IN onwards. */
+    static DescendantIndex read(ByteBuffer in) {
+        int[] post = IntAdjacency.readInts(in);
+        int[] nodeAtPost = IntAdjacency.readInts(in);
+        int[] labelOffsets = IntAdjacency.readInts(in);
+        int[] labelLo = IntAdjacency.readInts(in);
+        return new DescendantIndex(post, nodeAtPost, labelOffsets, labelLo, IntAdjacency.readInts(in));
+    }
+
+    /** Returns the number of labelled nodes. */
+    int nodes() {
+        return post.length;
+    }
+
+    /** Returns true if NODE is ANCESTOR or one of its descendants. */
+    boolean isDescendant(int node, int ancestor) {
+        if (node < 0 || node >= post.length || ancestor < 0 || ancestor >= post.length) {
+            return false;
+        }
+        int p = post[node];
+        int lo = labelOffsets[ancestor];
+        int hi = labelOffsets[ancestor + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (p < labelLo[mid]) {
+                hi = mid - 1;
+            } else if (p > labelHi[mid]) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the number of nodes reachable from NODE, including itself. */
+    int descendantCount(int node) {
+        int count = 0;
+        for (int i = labelOffsets[node]; i < labelOffsets[node + 1]; i += 1) {
+            count += labelHi[i] - labelLo[i] + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Writes every node reachable from NODE (including itself) into OUT,
+     * starting at index FROM, and returns the index after the last one.
+     */
+    int descendants(int node, int[] out, int from) {
+        for (int i = labelOffsets[node]; i < labelOffsets[node + 1]; i += 1) {
+            for (int p = labelLo[i]; p <= labelHi[i]; p += 1) {
+                out[from++] = nodeAtPost[p];
+            }
+        }
+        return from;
+    }
+
+    /** A growable list of [lo, hi] int intervals. */
+    private static final class IntervalList {
+        int[] lo = new int[16];
+        int[] hi = new int[16];
+        int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int l, int h) {
+            if (size == lo.length) {
+                lo = Arrays.copyOf(lo, size * 2);
+                hi = Arrays.copyOf(hi, size * 2);
+            }
+            lo[size] = l;
+            hi[size] = h;
+            size += 1;
+        }
+
+        void addAll(IntervalList other) {
+            for (int i = 0; i < other.size; i += 1) {
+                add(other.lo[i], other.hi[i]);
+            }
+        }
+
+        /** Sorts by lo and merges overlapping or adjacent intervals. */
+        void sortAndMerge() {
+            if (size < 2) {
+                return;
+            }
+            long[] packed = new long[size];
+            for (int i = 0; i < size; i += 1) {
+                packed[i] = ((long) lo[i] << 32) | hi[i];
+            }
+            Arrays.sort(packed);
+            int write = 0;
+            for (long interval : packed) {
+                int l = (int) (interval >>> 32);
+                int h = (int) interval;
+                if (write > 0 && l <= hi[write - 1] + 1) {
+                    hi[write - 1] = Math.max(hi[write - 1], h);
+                } else {
+                    lo[write] = l;
+                    hi[write] = h;
+                    write += 1;
+                }
+            }
+            size = write;
+        }
+    }
+}
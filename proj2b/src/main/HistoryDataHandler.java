@@ -0,0 +1,76 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+import com.google.gson.Gson;
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Returns the raw series behind a history chart so the browser can draw it
+ * itself. The response is a JSON array with one {"word", "years", "values"}
+ * object per query word, in query order.
+ */
+public class HistoryDataHandler extends NgordnetQueryHandler {
+    private record Series(String word, int[] years, double[] values) {}
+
+    private static final Gson gson = new Gson();
+
+    private final NGramMap ngm;
+    private final boolean normalized;
+    private final int maxPoints;
+
+    /**
+     * Serves histories from MAP: relative frequencies if NORMALIZED, raw
+     * counts otherwise.
+     */
+    public HistoryDataHandler(NGramMap map, boolean normalized) {
+        this(map, normalized, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as above, but relative frequencies are sent with at most MAXPOINTS
+     * points per word where possible, as HistoryHandler plots them.
+     */
+    public HistoryDataHandler(NGramMap map, boolean normalized, int maxPoints) {
+        this.ngm = map;
+        this.normalized = normalized;
+        this.maxPoints = maxPoints;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        long start = System.nanoTime();
+        List<Series> result = new ArrayList<>(q.words().size());
+        for (String word : q.words()) {
+            TimeSeries ts = HistoryHandler.history(ngm, word, q.startYear(), q.endYear(),
+                    normalized, maxPoints);
+            int[] years = new int[ts.size()];
+            double[] values = new double[ts.size()];
+            int i = 0;
+            for (var entry : ts.entrySet()) {
+                years[i] = entry.getKey();
+                values[i] = entry.getValue();
+                i += 1;
+            }
+            result.add(new Series(word, years, values));
+        }
+        QueryStage.NGRAMS.record(start);
+
+        start = System.nanoTime();
+        String json = gson.toJson(result);
+        QueryStage.SERIALIZE.record(start);
+        return json;
+    }
+
+    /** Sends the JSON array as is rather than wrapped in a JSON string. */
+    @Override
+    public byte[] handleAsJson(NgordnetQuery q) {
+        return handle(q).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,81 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+import ngrams.NGramMap;
+import ngrams.TimeSeries;
+import plotting.ChartRenderer;
+import plotting.Plotter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plots the history of each query word as a PNG. Finished images are cached
+ * by the ChartRenderer, so a repeated query only pays for the lookup.
+ */
+public class HistoryHandler extends NgordnetQueryHandler {
+    /** The points per word that relative-frequency charts are downsampled to. */
+    public static final int PLOT_POINTS = 250;
+
+    private static final long DEFAULT_CACHE_CHARS = 32 << 20;
+
+    private final NGramMap ngm;
+    private final ChartRenderer renderer;
+    private final boolean normalized;
+    private final int maxPoints;
+
+    /** Plots relative frequencies from MAP with a private image cache. */
+    public HistoryHandler(NGramMap map) {
+        this(map, new ChartRenderer(DEFAULT_CACHE_CHARS), true);
+    }
+
+    /**
+     * Plots histories from MAP through RENDERER: relative frequencies if
+     * NORMALIZED, raw counts otherwise.
+     */
+    public HistoryHandler(NGramMap map, ChartRenderer renderer, boolean normalized) {
+        this(map, renderer, normalized, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Same as above, but relative frequencies are plotted with at most
+     * MAXPOINTS points per word where possible; see
+     * NGramMap.weightHistory(String, int, int, int). Raw counts always get
+     * every year.
+     */
+    public HistoryHandler(NGramMap map, ChartRenderer renderer, boolean normalized, int maxPoints) {
+        this.ngm = map;
+        this.renderer = renderer;
+        this.normalized = normalized;
+        this.maxPoints = maxPoints;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        List<String> words = q.words();
+        int startYear = q.startYear();
+        int endYear = q.endYear();
+
+        ChartRenderer.Key key = new ChartRenderer.Key(words, startYear, endYear, normalized,
+                maxPoints, ngm.version());
+        return renderer.render(key, () -> {
+            long start = System.nanoTime();
+            List<TimeSeries> tsList = new ArrayList<>();
+            for (String word : words) {
+                tsList.add(history(ngm, word, startYear, endYear, normalized, maxPoints));
+            }
+            QueryStage.NGRAMS.record(start);
+            return Plotter.generateTimeSeriesChart(words, tsList);
+        });
+    }
+
+    static TimeSeries history(NGramMap ngm, String word, int startYear, int endYear,
+                              boolean normalized, int maxPoints) {
+        if (normalized) {
+            return ngm.weightHistory(word, startYear, endYear, maxPoints);
+        }
+        return ngm.countHistory(word, startYear, endYear);
+    }
+}
@@ -0,0 +1,28 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+
+/**
+ * Shows the hypernym chain of each query word on its own line: the words of
+ * the word's deepest synset, then of each hypernym above it up to a root.
+ */
+public class HypernymChainHandler extends NgordnetQueryHandler {
+    private final WordNet wordNet;
+
+    public HypernymChainHandler(WordNet wordNet) {
+        this.wordNet = wordNet;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        long start = System.nanoTime();
+        StringBuilder out = new StringBuilder();
+        for (String word : q.words()) {
+            out.append(word).append(": ").append(wordNet.hypernymChain(word)).append('\n');
+        }
+        QueryStage.WORDNET.record(start);
+        return out.toString();
+    }
+}
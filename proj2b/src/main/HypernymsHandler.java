@@ -0,0 +1,28 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/** Lists, alphabetically, the words that are hypernyms of all the query words. */
+public class HypernymsHandler extends NgordnetQueryHandler {
+    private final WordNet wordNet;
+
+    public HypernymsHandler(WordNet wordNet) {
+        this.wordNet = wordNet;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        long start = System.nanoTime();
+        List<String> hypernyms = new ArrayList<>(wordNet.hypernyms(new HashSet<>(q.words())));
+        QueryStage.WORDNET.record(start);
+        Collections.sort(hypernyms);
+        return hypernyms.toString();
+    }
+}
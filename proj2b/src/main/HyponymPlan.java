@@ -0,0 +1,65 @@
+package main;
+
+import java.util.List;
+
+/**
+ * How WordNet answered a hyponym query, as returned by WordNet.explain.
+ *
+ * Query words are taken in order of their estimated descendant count, the
+ * number of synsets below their synsets according to the DescendantIndex.
+ * The first word (the driver) is expanded into its hyponyms; every later
+ * word only filters the candidates by reachability checks. Once no candidate
+ * is left, the remaining words are skipped. Driver synsets cannot be pruned
+ * by comparing descendant synsets, since the intersection is over words and
+ * one word may sit in a different synset below each query word.
+ *
+ * Work is counted in synsets visited by expansion plus reachability checks.
+ * naiveWork is what expanding every query word in full would visit.
+ */
+public record HyponymPlan(List<Step> steps, int result, long naiveWork, long plannedWork) {
+    /** What happened to one query word. */
+    public enum Action {
+        /** The word is not in WordNet, so nothing is a hyponym of all query words. */
+        UNKNOWN,
+        /** The word was expanded into the candidate hyponyms. */
+        EXPAND,
+        /** The candidates were filtered down to hyponyms of the word. */
+        FILTER,
+        /** No candidates were left, so the word was not looked at. */
+        SKIP
+    }
+
+    /**
+     * One query word in plan order: its estimated descendant count, what was
+     * done with it, and how many candidates were left afterwards.
+     */
+    public record Step(String word, long estimate, Action action, int remaining) {}
+
+    /** Returns the work avoided compared to expanding every query word. */
+    public long savedWork() {
+        return naiveWork - plannedWork;
+    }
+
+    /** Returns true if some query word was never expanded or checked. */
+    public boolean stoppedEarly() {
+        for (Step step : steps) {
+            if (step.action() == Action.SKIP || step.action() == Action.UNKNOWN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the plan as one line per step followed by a summary line. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Step step : steps) {
+            sb.append(String.format("%-6s %s (estimate %d): %d candidates left%n",
+                    step.action(), step.word(), step.estimate(), step.remaining()));
+        }
+        sb.append(String.format("%d hyponyms; work %d of %d (%d saved)",
+                result, plannedWork, naiveWork, savedWork()));
+        return sb.toString();
+    }
+}
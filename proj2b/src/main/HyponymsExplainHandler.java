@@ -0,0 +1,28 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+
+import java.util.HashSet;
+
+/**
+ * Shows how WordNet plans the hyponym query for the query words: the order
+ * the words are taken in, which one is expanded, how many candidates each
+ * step leaves, and the work saved over expanding every word. See HyponymPlan.
+ */
+public class HyponymsExplainHandler extends NgordnetQueryHandler {
+    private final WordNet wordNet;
+
+    public HyponymsExplainHandler(WordNet wordNet) {
+        this.wordNet = wordNet;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        long start = System.nanoTime();
+        HyponymPlan plan = wordNet.explain(new HashSet<>(q.words()));
+        QueryStage.WORDNET.record(start);
+        return plan.toString();
+    }
+}
@@ -2,18 +2,24 @@ package main;
 
 import browser.NgordnetQuery;
 import browser.NgordnetQueryHandler;
+import browser.QueryStage;
 import ngrams.NGramMap;
-import ngrams.TimeSeries;
+import ngrams.WordDictionary;
 
 import java.util.*;
 
 public class HyponymsHandler extends NgordnetQueryHandler {
     private final WordNet wordNet;
     private final NGramMap ngm;
+    private final WordDictionary dictionary;
+    /* True if WordNet word IDs can be passed to the NGramMap as they are. */
+    private final boolean sharedIds;
 
     public HyponymsHandler(WordNet wordNet, NGramMap ngm) {
         this.wordNet = wordNet;
         this.ngm = ngm;
+        this.dictionary = wordNet.dictionary();
+        this.sharedIds = dictionary == ngm.dictionary();
     }
 
     @Override
@@ -23,39 +29,77 @@ public class HyponymsHandler extends NgordnetQueryHandler {
         int startYear = q.startYear();
         int endYear = q.endYear();
 
-        Set<String> hyponyms = wordNet.hyponyms(queryWords);
+        long start = System.nanoTime();
+        int[] hyponyms = wordNet.hyponymIds(queryWords);
+        QueryStage.WORDNET.record(start);
 
         if (k == 0) {
-            List<String> sortedHyponyms = new ArrayList<>(hyponyms);
+            List<String> sortedHyponyms = new ArrayList<>();
+            for (int id : hyponyms) {
+                sortedHyponyms.add(dictionary.word(id));
+            }
             Collections.sort(sortedHyponyms);
             return sortedHyponyms.toString();
         } else {
-            Map<String, Double> wordCounts = new HashMap<>();
-            for (String word : hyponyms) {
-                TimeSeries ts = ngm.countHistory(word, startYear, endYear);
-                double totalCount = 0.0;
-                for (int year = startYear; year <= endYear; year++) {
-                    totalCount += ts.getOrDefault(year, 0.0);
-                }
-                if (totalCount > 0) {
-                    wordCounts.put(word, totalCount);
-                }
-            }
+            start = System.nanoTime();
+            List<String> best = topK(hyponyms, k, startYear, endYear);
+            QueryStage.NGRAMS.record(start);
+            return best.toString();
+        }
+    }
 
-            List<String> sortedByCount = new ArrayList<>(wordCounts.keySet());
-            sortedByCount.sort((a, b) -> {
-                int cmp = Double.compare(wordCounts.get(b), wordCounts.get(a));
-                if (cmp != 0) {
-                    return cmp;
-                }
-                return a.compareTo(b);
-            });
+    /** A hyponym and its total count over the query years. */
+    private record Ranked(String word, double count) {}
 
-            if (k < sortedByCount.size()) {
-                sortedByCount = sortedByCount.subList(0, k);
+    /**
+     * Orders Ranked by descending count, then alphabetically. The head of a
+     * PriorityQueue using the reverse of this order is the weakest entry.
+     */
+    private static final Comparator<Ranked> BEST_FIRST = (a, b) -> {
+        int cmp = Double.compare(b.count(), a.count());
+        if (cmp != 0) {
+            return cmp;
+        }
+        return a.word().compareTo(b.word());
+    };
+
+    /**
+     * Returns the K hyponyms with the highest total counts between STARTYEAR and
+     * ENDYEAR, best first, skipping words that never occur. A negative K, or
+     * one of at least the number of hyponyms, ranks them all. Keeps a heap of
+     * at most K entries, and a candidate that cannot beat the weakest of them
+     * is rejected without allocating anything.
+     */
+    private List<String> topK(int[] hyponyms, int k, int startYear, int endYear) {
+        if (k < 0 || k > hyponyms.length) {
+            k = hyponyms.length;
+        }
+        PriorityQueue<Ranked> heap = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (int id : hyponyms) {
+            String word = dictionary.word(id);
+            double totalCount = sharedIds
+                    ? ngm.countSum(id, startYear, endYear)
+                    : ngm.countSum(word, startYear, endYear);
+            if (totalCount <= 0) {
+                continue;
             }
+            if (heap.size() == k) {
+                Ranked weakest = heap.peek();
+                int cmp = Double.compare(totalCount, weakest.count());
+                if (cmp < 0 || (cmp == 0 && word.compareTo(weakest.word()) > 0)) {
+                    continue;
+                }
+                heap.poll();
+            }
+            heap.add(new Ranked(word, totalCount));
+        }
 
-            return sortedByCount.toString();
+        List<Ranked> best = new ArrayList<>(heap);
+        best.sort(BEST_FIRST);
+        List<String> result = new ArrayList<>();
+        for (Ranked r : best) {
+            result.add(r.word());
         }
+        return result;
     }
 }
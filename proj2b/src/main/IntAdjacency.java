@@ -0,0 +1,140 @@
+package main;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An immutable compressed-sparse-row table of int lists: row r holds
+ * values[offsets[r] .. offsets[r + 1]), sorted and free of duplicates.
+ * WordNet uses it for the hyponym graph (synset to child synsets) and for
+ * the links between synsets and word IDs.
+ */
+class IntAdjacency {
+    private final int[] offsets;
+    private final int[] values;
+
+    private IntAdjacency(int[] offsets, int[] values) {
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    /** Returns the number of rows. */
+    int rows() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the index in values() of the first entry of ROW. Rows outside
+     * the table are empty.
+     */
+    int start(int row) {
+        return row >= 0 && row < rows() ? offsets[row] : values.length;
+    }
+
+    /** Returns the index in values() just past the last entry of ROW. */
+    int end(int row) {
+        return row >= 0 && row < rows() ? offsets[row + 1] : values.length;
+    }
+
+    /** Returns the number of entries in ROW. */
+    int size(int row) {
+        return end(row) - start(row);
+    }
+
+    /** Returns the backing array of all rows. Do not modify it. */
+    int[] values() {
+        return values;
+    }
+
+    /** Writes the table to OUT as its offsets and values, each in writeInts format. */
+    void write(DataOutputStream out) throws IOException {
+        writeInts(out, offsets);
+        writeInts(out, values);
+    }
+
+    /** Reads a table written by write() from the position of IN onwards. */
+    static IntAdjacency read(ByteBuffer in) {
+        int[] offsets = readInts(in);
+        return new IntAdjacency(offsets, readInts(in));
+    }
+
+    /** Writes the length of VALUES and then VALUES to OUT. */
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /** Reads an array written by writeInts from IN with one bulk copy, advancing IN past it. */
+    static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + 4 * values.length);
+        return values;
+    }
+
+    /** Collects (row, value) pairs and packs them into an IntAdjacency. */
+    static class Builder {
+        private int[] pairRow = new int[1024];
+        private int[] pairValue = new int[1024];
+        private int pairs;
+        private int maxRow = -1;
+
+        void add(int row, int value) {
+            if (row < 0) {
+                throw new IllegalArgumentException("Negative row: " + row);
+            }
+            if (pairs == pairRow.length) {
+                pairRow = Arrays.copyOf(pairRow, pairs * 2);
+                pairValue = Arrays.copyOf(pairValue, pairs * 2);
+            }
+            pairRow[pairs] = row;
+            pairValue[pairs] = value;
+            pairs += 1;
+            maxRow = Math.max(maxRow, row);
+        }
+
+        /** Returns the largest row added so far, or -1 if there are none. */
+        int maxRow() {
+            return maxRow;
+        }
+
+        /** Builds a table with at least ROWS rows. */
+        IntAdjacency build(int rows) {
+            rows = Math.max(rows, maxRow + 1);
+            int[] offsets = new int[rows + 1];
+            for (int i = 0; i < pairs; i += 1) {
+                offsets[pairRow[i] + 1] += 1;
+            }
+            for (int r = 0; r < rows; r += 1) {
+                offsets[r + 1] += offsets[r];
+            }
+            int[] values = new int[pairs];
+            int[] next = Arrays.copyOf(offsets, rows);
+            for (int i = 0; i < pairs; i += 1) {
+                values[next[pairRow[i]]++] = pairValue[i];
+            }
+
+            // Sort each row and squeeze out duplicates in place.
+            int write = 0;
+            int[] packed = new int[rows + 1];
+            for (int r = 0; r < rows; r += 1) {
+                int from = offsets[r];
+                int to = offsets[r + 1];
+                Arrays.sort(values, from, to);
+                packed[r] = write;
+                for (int i = from; i < to; i += 1) {
+                    if (i == from || values[i] != values[i - 1]) {
+                        values[write] = values[i];
+                        write += 1;
+                    }
+                }
+            }
+            packed[rows] = write;
+            return new IntAdjacency(packed, Arrays.copyOf(values, write));
+        }
+    }
+}
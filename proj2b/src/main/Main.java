@@ -1,23 +1,43 @@
 package main;
 
+import browser.CachingQueryHandler;
 import browser.NgordnetServer;
-import demo.DummyHistoryHandler;
 import demo.DummyHistoryTextHandler;
 import ngrams.NGramMap;
+import ngrams.SimilarityIndex;
+import ngrams.WordDictionary;
+import plotting.ChartRenderer;
 
 public class Main {
     public static void main(String[] args) {
         NgordnetServer hns = new NgordnetServer();
 
+        hns.enableAsync(Runtime.getRuntime().availableProcessors(), 64, 10_000);
         hns.startUp();
 
-        WordNet wn = new WordNet("data/wordnet/synsets-EECS.txt", "data/wordnet/hyponyms-EECS.txt");
-        NGramMap ngm = new NGramMap("data/ngrams/frequency-EECS.csv", "data/ngrams/total_counts.csv");
+        WordDictionary dictionary = new WordDictionary();
+        WordNet wn = new WordNet("data/wordnet/synsets-EECS.txt", "data/wordnet/hyponyms-EECS.txt",
+                dictionary);
+        NGramMap ngm = new NGramMap("data/ngrams/frequency-EECS.csv", "data/ngrams/total_counts.csv",
+                NGramMap.StorageMode.COLUMNAR, dictionary);
 
-        hns.register("history", new DummyHistoryHandler());
+        ChartRenderer charts = new ChartRenderer(32 << 20);
+        hns.register("history", new HistoryHandler(ngm, charts, true, HistoryHandler.PLOT_POINTS));
+        hns.register("historydata", new HistoryDataHandler(ngm, true, HistoryHandler.PLOT_POINTS));
         hns.register("historytext", new DummyHistoryTextHandler());
+        hns.register("autocomplete", new AutocompleteHandler(ngm));
+        SimilarityIndex similarity = SimilarityIndex.build(ngm, 1900, 2019, 5,
+                SimilarityIndex.Metric.PEARSON, false);
+        hns.register("similar", new SimilarHandler(similarity, false));
 
-        hns.register("hyponyms", new HyponymsHandler(wn, ngm));
+        CachingQueryHandler hyponyms =
+                hns.register("hyponyms", new HyponymsHandler(wn, ngm), 64 << 20, 10 * 60_000,
+                        ngm::version);
+        hns.registerBatch("hyponyms/batch", hyponyms);
+        hns.register("hyponyms/explain", new HyponymsExplainHandler(wn));
+        hns.register("hypernyms", new HypernymsHandler(wn));
+        hns.register("hypernyms/chain", new HypernymChainHandler(wn));
+        hns.register("ancestors", new AncestorsHandler(wn));
 
         System.out.println("Finished server startup! Visit http://localhost:4567/ngordnet.html");
     }
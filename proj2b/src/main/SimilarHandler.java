@@ -0,0 +1,54 @@
+package main;
+
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import browser.QueryStage;
+import com.google.gson.Gson;
+import ngrams.SimilarityIndex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Lists the words whose popularity over time most resembles that of the query
+ * words combined, by correlation over the years the SimilarityIndex was built
+ * for; the query's own years are ignored. k limits the number of words and
+ * defaults to DEFAULT_MATCHES. The response is a JSON array of
+ * {"word": ..., "score": ...} objects, best first.
+ */
+public class SimilarHandler extends NgordnetQueryHandler {
+    /** The number of words returned when the query has no k. */
+    public static final int DEFAULT_MATCHES = 10;
+
+    private static final Gson gson = new Gson();
+
+    private final SimilarityIndex index;
+    private final boolean approximate;
+
+    /**
+     * Answers from INDEX, with approximateSimilar if APPROXIMATE (the index must
+     * have been built for it) and with the exact scan otherwise.
+     */
+    public SimilarHandler(SimilarityIndex index, boolean approximate) {
+        this.index = index;
+        this.approximate = approximate;
+    }
+
+    @Override
+    public String handle(NgordnetQuery q) {
+        int k = q.k() > 0 ? q.k() : DEFAULT_MATCHES;
+
+        long start = System.nanoTime();
+        List<SimilarityIndex.Match> matches = approximate
+                ? index.approximateSimilar(q.words(), k)
+                : index.similar(q.words(), k);
+        QueryStage.NGRAMS.record(start);
+        return gson.toJson(matches);
+    }
+
+    /** Sends the JSON array as is rather than wrapped in a JSON string. */
+    @Override
+    public byte[] handleAsJson(NgordnetQuery q) {
+        return handle(q).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,81 +1,620 @@
 package main;
 
 import edu.princeton.cs.algs4.In;
+import ngrams.WordDictionary;
 
-
-
-
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
+/**
+ * The WordNet hyponym graph. Synsets are numbered by the IDs in the synsets
+ * file and words by a WordDictionary; all links between them are stored as
+ * IntAdjacency tables, so queries walk int arrays instead of boxed sets.
+ */
 public class WordNet {
-    private Map<Integer, String[]> idToSynset;
-    private Map<String, Set<Integer>> wordToIds;
-    private Map<Integer, Set<Integer>> graph;
+    /** Upper bound on the word IDs held by the descendant cache (16 MB of ints). */
+    static final long CACHE_MAX_WORDS = 1 << 22;
+    /**
+     * Synsets with fewer descendants than this are cheaper to expand than to
+     * cache, so they bypass the cache.
+     */
+    static final int CACHE_MIN_DESCENDANTS = 32;
+
+    static final int SNAPSHOT_MAGIC = 0x574E4554;
+    static final int SNAPSHOT_VERSION = 1;
+
+    private final WordDictionary dictionary;
+    /* synset ID -> word IDs of the synset */
+    private IntAdjacency synsetWords;
+    /* word ID -> IDs of the synsets containing the word */
+    private IntAdjacency wordSynsets;
+    /* synset ID -> IDs of its direct hyponyms */
+    private IntAdjacency graph;
+    private DescendantIndex descendantIndex;
+    /* Built on the first hypernym query, since hyponym queries never need it. */
+    private volatile AncestorIndex ancestorIndex;
+    private final DescendantCache cache = new DescendantCache(CACHE_MAX_WORDS);
+    private final ThreadLocal<Scratch> scratch;
 
     public WordNet(String synsetsFile, String hyponymsFile) {
-        idToSynset = new HashMap<>();
-        wordToIds = new HashMap<>();
-        graph = new HashMap<>();
+        this(synsetsFile, hyponymsFile, new WordDictionary());
+    }
+
+    /**
+     * Builds a WordNet whose words are numbered by DICTIONARY. Pass the same
+     * dictionary to an NGramMap so that word IDs from hyponymIds() can be used
+     * with it directly.
+     */
+    public WordNet(String synsetsFile, String hyponymsFile, WordDictionary dictionary) {
+        this.dictionary = dictionary;
+        IntAdjacency.Builder synsetWordsBuilder = new IntAdjacency.Builder();
+        IntAdjacency.Builder wordSynsetsBuilder = new IntAdjacency.Builder();
+        IntAdjacency.Builder graphBuilder = new IntAdjacency.Builder();
+
+        parseSynsets(synsetsFile, synsetWordsBuilder, wordSynsetsBuilder);
+        parseHyponyms(hyponymsFile, graphBuilder);
 
-        parseSynsets(synsetsFile);
-        parseHyponyms(hyponymsFile);
+        int synsets = Math.max(synsetWordsBuilder.maxRow(), graphBuilder.maxRow()) + 1;
+        synsetWords = synsetWordsBuilder.build(synsets);
+        wordSynsets = wordSynsetsBuilder.build(0);
+        graph = graphBuilder.build(synsets);
+        for (int target : graph.values()) {
+            synsets = Math.max(synsets, target + 1);
+        }
+        int nodes = synsets;
+        int words = wordSynsets.rows();
+        descendantIndex = new DescendantIndex(graph, nodes);
+        scratch = ThreadLocal.withInitial(() -> new Scratch(nodes, words));
+    }
+
+    /**
+     * Loads a WordNet from SNAPSHOTFILENAME, a binary snapshot written by
+     * WordNetSnapshotCompiler.
+     */
+    public WordNet(String snapshotFilename) {
+        this(snapshotFilename, new WordDictionary());
     }
 
-    private void parseSynsets(String synsetsFile) {
+    /**
+     * Loads a WordNet from SNAPSHOTFILENAME, numbering words with DICTIONARY.
+     * The file is mapped and each table copied out with one bulk read, so no
+     * text is parsed and the descendant labels are not recomputed; only the
+     * words are interned. If DICTIONARY already numbers other words, the
+     * word tables are rebuilt with its IDs.
+     *
+     * File layout (big-endian; every int[] is preceded by its length):
+     * <pre>
+     *   header       4 ints: SNAPSHOT_MAGIC, SNAPSHOT_VERSION, words, pool bytes
+     *   synsetWords  IntAdjacency: int[] offsets, int[] values, with snapshot word IDs
+     *   wordSynsets  IntAdjacency, rows by snapshot word ID
+     *   graph        IntAdjacency
+     *   labels       DescendantIndex: int[] post, nodeAtPost, labelOffsets, labelLo, labelHi
+     *   wordStart    int[words + 1], byte offsets into the pool
+     *   pool         UTF-8 bytes of every word, by snapshot word ID
+     * </pre>
+     */
+    public WordNet(String snapshotFilename, WordDictionary dictionary) {
+        this.dictionary = dictionary;
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(Path.of(snapshotFilename),
+                StandardOpenOption.READ)) {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to map snapshot file", e);
+        }
+        if (buf.getInt() != SNAPSHOT_MAGIC || buf.getInt() != SNAPSHOT_VERSION) {
+            throw new IllegalArgumentException("Not a WordNet snapshot file");
+        }
+        int words = buf.getInt();
+        byte[] pool = new byte[buf.getInt()];
+        synsetWords = IntAdjacency.read(buf);
+        wordSynsets = IntAdjacency.read(buf);
+        graph = IntAdjacency.read(buf);
+        descendantIndex = DescendantIndex.read(buf);
+        int[] wordStart = IntAdjacency.readInts(buf);
+        buf.get(pool);
+
+        int[] ids = new int[words];
+        boolean renumbered = false;
+        for (int i = 0; i < words; i += 1) {
+            String word = new String(pool, wordStart[i], wordStart[i + 1] - wordStart[i],
+                    StandardCharsets.UTF_8);
+            ids[i] = dictionary.intern(word);
+            renumbered |= ids[i] != i;
+        }
+        if (renumbered) {
+            renumberWords(ids);
+        }
+        int nodes = descendantIndex.nodes();
+        int wordRows = wordSynsets.rows();
+        scratch = ThreadLocal.withInitial(() -> new Scratch(nodes, wordRows));
+    }
+
+    /** Rewrites the word tables so that snapshot word ID i becomes IDS[i]. */
+    private void renumberWords(int[] ids) {
+        IntAdjacency.Builder synsetWordsBuilder = new IntAdjacency.Builder();
+        IntAdjacency.Builder wordSynsetsBuilder = new IntAdjacency.Builder();
+        int[] values = synsetWords.values();
+        for (int synset = 0; synset < synsetWords.rows(); synset += 1) {
+            for (int i = synsetWords.start(synset); i < synsetWords.end(synset); i += 1) {
+                synsetWordsBuilder.add(synset, ids[values[i]]);
+                wordSynsetsBuilder.add(ids[values[i]], synset);
+            }
+        }
+        synsetWords = synsetWordsBuilder.build(synsetWords.rows());
+        wordSynsets = wordSynsetsBuilder.build(0);
+    }
+
+    /**
+     * Writes this WordNet to OUT in the snapshot format read by
+     * WordNet(String, WordDictionary). Every word of the dictionary up to the
+     * largest word ID in the graph goes into the pool.
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        int words = wordSynsets.rows();
+        byte[][] utf8 = new byte[words][];
+        int[] wordStart = new int[words + 1];
+        for (int id = 0; id < words; id += 1) {
+            utf8[id] = dictionary.word(id).getBytes(StandardCharsets.UTF_8);
+            wordStart[id + 1] = wordStart[id] + utf8[id].length;
+        }
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(words);
+        out.writeInt(wordStart[words]);
+        synsetWords.write(out);
+        wordSynsets.write(out);
+        graph.write(out);
+        descendantIndex.write(out);
+        IntAdjacency.writeInts(out, wordStart);
+        for (byte[] word : utf8) {
+            out.write(word);
+        }
+    }
+
+    private void parseSynsets(String synsetsFile, IntAdjacency.Builder synsetWordsBuilder,
+                              IntAdjacency.Builder wordSynsetsBuilder) {
         In in = new In(synsetsFile);
         while (in.hasNextLine()) {
             String[] parts = in.readLine().split(",");
             int id = Integer.parseInt(parts[0]);
             String[] synsetWords = parts[1].split(" ");
 
-            idToSynset.put(id, synsetWords);
             for (String word : synsetWords) {
-                wordToIds.computeIfAbsent(word, k -> new HashSet<>()).add(id);
+                int wordId = dictionary.intern(word);
+                synsetWordsBuilder.add(id, wordId);
+                wordSynsetsBuilder.add(wordId, id);
             }
         }
     }
 
-    private void parseHyponyms(String hyponymsFile) {
+    private void parseHyponyms(String hyponymsFile, IntAdjacency.Builder graphBuilder) {
         In in = new In(hyponymsFile);
         while (in.hasNextLine()) {
             String[] parts = in.readLine().split(",");
             int source = Integer.parseInt(parts[0]);
-            graph.putIfAbsent(source, new HashSet<>());
 
             for (int i = 1; i < parts.length; i++) {
                 int target = Integer.parseInt(parts[i]);
-                graph.get(source).add(target);
+                graphBuilder.add(source, target);
             }
         }
     }
 
+    /** Returns the dictionary that numbers the words of this WordNet. */
+    public WordDictionary dictionary() {
+        return dictionary;
+    }
+
     public Set<String> hyponyms(String word) {
-        Set<Integer> synsetIds = wordToIds.getOrDefault(word, new HashSet<>());
-        Set<Integer> descendants = GraphHelper.descendants(graph, synsetIds);
+        return hyponyms(Set.of(word));
+    }
 
+    public Set<String> hyponyms(Set<String> words) {
         Set<String> result = new HashSet<>();
-        for (int id : descendants) {
-            String[] synset = idToSynset.get(id);
-            result.addAll(Arrays.asList(synset));
+        for (int id : hyponymIds(words)) {
+            result.add(dictionary.word(id));
         }
         return result;
     }
 
-    public Set<String> hyponyms(Set<String> words) {
+    /**
+     * Returns true if HYPONYM is a hyponym of WORD, i.e. some synset containing
+     * HYPONYM is reachable from some synset containing WORD. Every word is its
+     * own hyponym. Answered from precomputed labels, without a traversal.
+     */
+    public boolean isHyponym(String hyponym, String word) {
+        return covers(dictionary.idOf(hyponym), dictionary.idOf(word));
+    }
+
+    /**
+     * Returns the dictionary IDs of every word that is a hyponym of all of
+     * WORDS (each word counts as its own hyponym), in ascending order.
+     *
+     * Only the query word with the fewest estimated descendants is expanded;
+     * its hyponyms are then kept or dropped by checking the DescendantIndex
+     * labels against the remaining query words, smallest first, so no other
+     * descendant sets are built. See HyponymPlan for the details.
+     */
+    public int[] hyponymIds(Set<String> words) {
+        return hyponymIds(words, null);
+    }
+
+    /** Answers hyponymIds(WORDS) and returns how the query was planned and run. */
+    public HyponymPlan explain(Set<String> words) {
+        Trace trace = new Trace();
+        int result = hyponymIds(words, trace).length;
+        return new HyponymPlan(trace.steps, result, trace.naiveWork, trace.plannedWork);
+    }
+
+    /** Counters and steps collected for explain(). */
+    private static final class Trace {
+        final List<HyponymPlan.Step> steps = new ArrayList<>();
+        long naiveWork;
+        long plannedWork;
+    }
+
+    private int[] hyponymIds(Set<String> words, Trace trace) {
         if (words.isEmpty()) {
-            return Collections.emptySet();
+            return new int[0];
+        }
+        String[] names = words.toArray(new String[0]);
+        int[] queryIds = new int[names.length];
+        long[] estimates = new long[names.length];
+        Integer[] order = new Integer[names.length];
+        for (int q = 0; q < names.length; q += 1) {
+            queryIds[q] = dictionary.idOf(names[q]);
+            estimates[q] = estimate(queryIds[q]);
+            order[q] = q;
+        }
+        Arrays.sort(order, (a, b) -> estimates[a] != estimates[b]
+                ? Long.compare(estimates[a], estimates[b]) : names[a].compareTo(names[b]));
+        if (trace != null) {
+            for (int q : order) {
+                trace.naiveWork += estimates[q];
+            }
+        }
+
+        int driver = queryIds[order[0]];
+        if (wordSynsets.size(driver) == 0) {
+            if (trace != null) {
+                for (int i = 0; i < order.length; i += 1) {
+                    trace.steps.add(new HyponymPlan.Step(names[order[i]], estimates[order[i]],
+                            i == 0 ? HyponymPlan.Action.UNKNOWN : HyponymPlan.Action.SKIP, 0));
+                }
+            }
+            return new int[0];
+        }
+
+        Scratch s = scratch.get();
+        try {
+            int[] synsets = wordSynsets.values();
+            for (int i = wordSynsets.start(driver); i < wordSynsets.end(driver); i += 1) {
+                expand(synsets[i], s);
+                if (trace != null) {
+                    trace.plannedWork += descendantIndex.descendantCount(synsets[i]);
+                }
+            }
+            int count = s.wordCount;
+            int[] result = Arrays.copyOf(s.words, count);
+            if (trace != null) {
+                trace.steps.add(new HyponymPlan.Step(names[order[0]], estimates[order[0]],
+                        HyponymPlan.Action.EXPAND, count));
+            }
+
+            for (int j = 1; j < order.length; j += 1) {
+                if (count == 0) {
+                    if (trace != null) {
+                        trace.steps.add(new HyponymPlan.Step(names[order[j]], estimates[order[j]],
+                                HyponymPlan.Action.SKIP, 0));
+                    }
+                    continue;
+                }
+                int q = queryIds[order[j]];
+                int kept = 0;
+                for (int i = 0; i < count; i += 1) {
+                    if (covers(result[i], q)) {
+                        result[kept++] = result[i];
+                    }
+                }
+                if (trace != null) {
+                    trace.plannedWork += count;
+                    trace.steps.add(new HyponymPlan.Step(names[order[j]], estimates[order[j]],
+                            HyponymPlan.Action.FILTER, kept));
+                }
+                count = kept;
+            }
+            result = Arrays.copyOf(result, count);
+            Arrays.sort(result);
+            return result;
+        } finally {
+            s.reset();
         }
+    }
 
-        Iterator<String> iter = words.iterator();
-        Set<String> result = new HashSet<>(hyponyms(iter.next()));
+    /**
+     * Returns the number of synsets below the synsets of word ID W, counting
+     * shared descendants once per synset, or 0 if W is not in WordNet.
+     */
+    private long estimate(int w) {
+        long estimate = 0;
+        int[] synsets = wordSynsets.values();
+        for (int i = wordSynsets.start(w); i < wordSynsets.end(w); i += 1) {
+            estimate += descendantIndex.descendantCount(synsets[i]);
+        }
+        return estimate;
+    }
 
-        while (iter.hasNext()) {
-            Set<String> nextHyponyms = hyponyms(iter.next());
-            result.retainAll(nextHyponyms);
+    public Set<String> hypernyms(String word) {
+        return hypernyms(Set.of(word));
+    }
+
+    /**
+     * Returns every word that is a hypernym of all of WORDS (each word counts
+     * as its own hypernym): the words of each synset that some synset of every
+     * query word descends from. Only the ancestors of the query word with the
+     * fewest of them are visited, and each is checked against the others with
+     * the DescendantIndex labels.
+     */
+    public Set<String> hypernyms(Set<String> words) {
+        Set<String> result = new HashSet<>();
+        int[] queryIds = queryIds(words);
+        int driver = fewestAncestors(queryIds);
+        if (driver < 0) {
+            return result;
+        }
+        AncestorIndex index = ancestorIndex();
+        int[] synsets = wordSynsets.values();
+        int size = 0;
+        for (int i = wordSynsets.start(driver); i < wordSynsets.end(driver); i += 1) {
+            size += index.ancestorCount(synsets[i]);
+        }
+        int[] above = new int[size];
+        int found = 0;
+        for (int i = wordSynsets.start(driver); i < wordSynsets.end(driver); i += 1) {
+            found = index.ancestors(synsets[i], above, found);
+        }
+        Arrays.sort(above);
+        for (int i = 0; i < found; i += 1) {
+            if ((i == 0 || above[i] != above[i - 1]) && isCommonAncestor(above[i], queryIds)) {
+                addWords(above[i], result);
+            }
         }
         return result;
     }
 
+    /**
+     * Returns the words of the lowest common ancestor of WORDS: the deepest
+     * synset that some synset of every query word descends from, or an empty
+     * set if they share none. Depth is the longest path from a root, and ties
+     * go to the lowest synset ID. A query word is its own ancestor, so
+     * lowestCommonAncestor of "change" and "demotion" is the synset of "change".
+     *
+     * The ancestors of the query word with the fewest of them are scanned
+     * deepest first and the scan stops at the first one above all the others,
+     * so no ancestor set besides that word's is ever built.
+     */
+    public Set<String> lowestCommonAncestor(Set<String> words) {
+        Set<String> result = new HashSet<>();
+        int[] queryIds = queryIds(words);
+        int driver = fewestAncestors(queryIds);
+        if (driver < 0) {
+            return result;
+        }
+        AncestorIndex index = ancestorIndex();
+        int[] synsets = wordSynsets.values();
+        int best = -1;
+        for (int i = wordSynsets.start(driver); i < wordSynsets.end(driver); i += 1) {
+            int found = index.deepest(synsets[i], a -> isCommonAncestor(a, queryIds));
+            if (found >= 0 && (best < 0 || index.depth(found) > index.depth(best)
+                    || (index.depth(found) == index.depth(best) && found < best))) {
+                best = found;
+            }
+        }
+        if (best >= 0) {
+            addWords(best, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the hypernym chain of WORD: the sorted words of its deepest
+     * synset, then those of that synset's deepest hypernym, and so on up to a
+     * root. Returns an empty list if WORD is not in this WordNet.
+     */
+    public List<List<String>> hypernymChain(String word) {
+        List<List<String>> chain = new ArrayList<>();
+        int w = dictionary.idOf(word);
+        if (wordSynsets.size(w) == 0) {
+            return chain;
+        }
+        AncestorIndex index = ancestorIndex();
+        int[] synsets = wordSynsets.values();
+        int deepest = synsets[wordSynsets.start(w)];
+        for (int i = wordSynsets.start(w); i < wordSynsets.end(w); i += 1) {
+            if (index.depth(synsets[i]) > index.depth(deepest)) {
+                deepest = synsets[i];
+            }
+        }
+        for (int synset : index.chain(deepest)) {
+            Set<String> synsetWords = new TreeSet<>();
+            addWords(synset, synsetWords);
+            chain.add(new ArrayList<>(synsetWords));
+        }
+        return chain;
+    }
+
+    private AncestorIndex ancestorIndex() {
+        AncestorIndex index = ancestorIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = ancestorIndex;
+                if (index == null) {
+                    index = new AncestorIndex(graph, descendantIndex.nodes());
+                    ancestorIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Returns the dictionary IDs of WORDS, -1 for words it does not know. */
+    private int[] queryIds(Set<String> words) {
+        int[] ids = new int[words.size()];
+        int q = 0;
+        for (String word : words) {
+            ids[q] = dictionary.idOf(word);
+            q += 1;
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the query word ID whose synsets have the fewest ancestors in
+     * total, or -1 if there are no query words or one of them is in no synset.
+     */
+    private int fewestAncestors(int[] queryIds) {
+        AncestorIndex index = ancestorIndex();
+        int[] synsets = wordSynsets.values();
+        int driver = -1;
+        long fewest = Long.MAX_VALUE;
+        for (int q : queryIds) {
+            if (wordSynsets.size(q) == 0) {
+                return -1;
+            }
+            long count = 0;
+            for (int i = wordSynsets.start(q); i < wordSynsets.end(q); i += 1) {
+                count += index.ancestorCount(synsets[i]);
+            }
+            if (count < fewest) {
+                fewest = count;
+                driver = q;
+            }
+        }
+        return driver;
+    }
+
+    /** Returns true if some synset of every word ID in QUERYIDS descends from SYNSET. */
+    private boolean isCommonAncestor(int synset, int[] queryIds) {
+        int[] synsets = wordSynsets.values();
+        for (int q : queryIds) {
+            boolean below = false;
+            for (int i = wordSynsets.start(q); i < wordSynsets.end(q) && !below; i += 1) {
+                below = descendantIndex.isDescendant(synsets[i], synset);
+            }
+            if (!below) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Adds the words of SYNSET to RESULT. */
+    private void addWords(int synset, Set<String> result) {
+        for (int e = synsetWords.start(synset); e < synsetWords.end(synset); e += 1) {
+            result.add(dictionary.word(synsetWords.values()[e]));
+        }
+    }
+
+    /** Returns the hit/miss counters of the per-synset descendant cache. */
+    public DescendantCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Adds the word IDs of every synset reachable from SYNSET that are not
+     * already in S.words to S.words.
+     */
+    private void expand(int synset, Scratch s) {
+        int[] below = synsetHyponymWords(synset, s);
+        for (int w : below) {
+            if (!s.wordMarked[w]) {
+                s.wordMarked[w] = true;
+                s.words[s.wordCount++] = w;
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted word IDs of every synset reachable from SYNSET, from
+     * the cache when possible. Large subtrees are added to the cache.
+     */
+    private int[] synsetHyponymWords(int synset, Scratch s) {
+        boolean cacheable = descendantIndex.descendantCount(synset) >= CACHE_MIN_DESCENDANTS;
+        if (cacheable) {
+            int[] cached = cache.get(synset);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        int found = descendantIndex.descendants(synset, s.synsets, 0);
+        int[] synsetValues = synsetWords.values();
+        int count = 0;
+        for (int i = 0; i < found; i += 1) {
+            int d = s.synsets[i];
+            for (int e = synsetWords.start(d); e < synsetWords.end(d); e += 1) {
+                int w = synsetValues[e];
+                if (!s.synsetWordMarked[w]) {
+                    s.synsetWordMarked[w] = true;
+                    s.synsetWords[count++] = w;
+                }
+            }
+        }
+        int[] words = Arrays.copyOf(s.synsetWords, count);
+        for (int w : words) {
+            s.synsetWordMarked[w] = false;
+        }
+        Arrays.sort(words);
+        if (cacheable) {
+            cache.put(synset, words);
+        }
+        return words;
+    }
+
+    /** Returns true if some synset of word ID W descends from some synset of word ID Q. */
+    private boolean covers(int w, int q) {
+        int[] synsets = wordSynsets.values();
+        for (int i = wordSynsets.start(w); i < wordSynsets.end(w); i += 1) {
+            for (int j = wordSynsets.start(q); j < wordSynsets.end(q); j += 1) {
+                if (descendantIndex.isDescendant(synsets[i], synsets[j])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Per-thread buffers for hyponymIds(). */
+    private static final class Scratch {
+        final int[] synsets;
+        final boolean[] synsetWordMarked;
+        final int[] synsetWords;
+        final boolean[] wordMarked;
+        final int[] words;
+        int wordCount;
+
+        Scratch(int synsets, int words) {
+            this.synsets = new int[synsets];
+            synsetWordMarked = new boolean[words];
+            synsetWords = new int[words];
+            wordMarked = new boolean[words];
+            this.words = new int[words];
+        }
+
+        void reset() {
+            for (int i = 0; i < wordCount; i += 1) {
+                wordMarked[words[i]] = false;
+            }
+            wordCount = 0;
+        }
+    }
+
 
 
 }
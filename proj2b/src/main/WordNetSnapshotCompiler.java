@@ -0,0 +1,37 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Compiles a synsets file and a hyponyms file into the binary snapshot format
+ * read by WordNet(String snapshotFilename). See WordNet(String, WordDictionary)
+ * for the layout.
+ *
+ * Usage: java main.WordNetSnapshotCompiler SYNSETSFILE HYPONYMSFILE SNAPSHOTFILE
+ */
+public class WordNetSnapshotCompiler {
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: java main.WordNetSnapshotCompiler "
+                    + "<synsets file> <hyponyms file> <snapshot file>");
+            System.exit(1);
+        }
+        compile(args[0], args[1], args[2]);
+    }
+
+    /** Parses SYNSETSFILENAME and HYPONYMSFILENAME and writes SNAPSHOTFILENAME. */
+    public static void compile(String synsetsFilename, String hyponymsFilename,
+                               String snapshotFilename) {
+        WordNet wn = new WordNet(synsetsFilename, hyponymsFilename);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(snapshotFilename), 1 << 16))) {
+            wn.writeSnapshot(out);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write snapshot file", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ngrams;
+
+/**
+ * A fixed-size Bloom filter over strings. mightContain never returns false
+ * for an added string, and returns true for other strings with roughly the
+ * false positive rate the filter was sized for.
+ *
+ * The probes are derived from String.hashCode, which strings cache, so a
+ * lookup hashes nothing and touches a handful of words of one long array.
+ */
+final class BloomFilter {
+    private final long[] bits;
+    private final int mask;
+    private final int hashes;
+
+    /** Sizes the filter for EXPECTED strings at about FALSEPOSITIVERATE. */
+    BloomFilter(int expected, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1)");
+        }
+        int n = Math.max(expected, 1);
+        double optimal = -n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        int size = 64;
+        while (size < optimal && size < (1 << 30)) {
+            size <<= 1;
+        }
+        bits = new long[size >>> 6];
+        mask = size - 1;
+        hashes = (int) Math.max(1, Math.min(16, Math.round((double) size / n * Math.log(2))));
+    }
+
+    /** Adds WORD to the filter. */
+    void add(String word) {
+        long h = mix(word.hashCode());
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < hashes; i += 1) {
+            int bit = (h1 + i * h2) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /** Returns false if WORD was certainly never added. */
+    boolean mightContain(String word) {
+        long h = mix(word.hashCode());
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        for (int i = 0; i < hashes; i += 1) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the size of the filter in bits. */
+    int bitCount() {
+        return mask + 1;
+    }
+
+    /** Spreads a 32-bit hash over 64 bits (the SplitMix64 finalizer). */
+    private static long mix(int hash) {
+        long z = hash * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
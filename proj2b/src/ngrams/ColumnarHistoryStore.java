@@ -0,0 +1,371 @@
+package ngrams;
+
+import java.util.Arrays;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A HistoryStore that keeps every word's history as a dense run of primitive
+ * doubles inside one shared array, indexed by WordDictionary ID. Word i owns
+ * the slots values[offset[i] .. offset[i] + length[i]), where slot j holds the
+ * count for year MIN_YEAR + firstYear[i] + j, or NaN if that year was never
+ * recorded. Words with no data (or interned after the store was built) have
+ * length 0. cumulative[k] is the running total of values[offset[i] .. k] for
+ * the word owning slot k, so the sum over any year range is one subtraction.
+ *
+ * Nothing is boxed until a caller asks for a TimeSeries.
+ */
+class ColumnarHistoryStore implements HistoryStore {
+    private final WordDictionary dictionary;
+    private final int[] firstYear;
+    private final int[] offset;
+    private final int[] length;
+    private final double[] values;
+    private final double[] cumulative;
+    private final int size;
+
+    private ColumnarHistoryStore(WordDictionary dictionary, int[] firstYear,
+                                 int[] offset, int[] length, double[] values, int size) {
+        this.dictionary = dictionary;
+        this.firstYear = firstYear;
+        this.offset = offset;
+        this.length = length;
+        this.values = values;
+        this.size = size;
+        cumulative = new double[values.length];
+        for (int id = 0; id < length.length; id += 1) {
+            double running = 0;
+            for (int k = offset[id]; k < offset[id] + length[id]; k += 1) {
+                if (!Double.isNaN(values[k])) {
+                    running += values[k];
+                }
+                cumulative[k] = running;
+            }
+        }
+    }
+
+    @Override
+    public boolean contains(String word) {
+        return length(dictionary.idOf(word)) > 0;
+    }
+
+    @Override
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        return countHistory(dictionary.idOf(word), startYear, endYear);
+    }
+
+    @Override
+    public TimeSeries countHistory(String word) {
+        return countHistory(word, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
+    }
+
+    @Override
+    public TimeSeries countHistory(int id, int startYear, int endYear) {
+        TimeSeries ts = new TimeSeries();
+        if (length(id) == 0) {
+            return ts;
+        }
+        int first = TimeSeries.MIN_YEAR + firstYear[id];
+        int from = Math.max(startYear, first);
+        int to = Math.min(endYear, first + length[id] - 1);
+        int base = offset[id] - first;
+        for (int year = from; year <= to; year += 1) {
+            double count = values[base + year];
+            if (!Double.isNaN(count)) {
+                ts.put(year, count);
+            }
+        }
+        return ts;
+    }
+
+    @Override
+    public DenseTimeSeries denseHistory(String word, int startYear, int endYear) {
+        return denseHistory(dictionary.idOf(word), startYear, endYear);
+    }
+
+    @Override
+    public DenseTimeSeries denseHistory(int id, int startYear, int endYear) {
+        DenseTimeSeries ts = new DenseTimeSeries();
+        if (length(id) == 0) {
+            return ts;
+        }
+        int from = Math.max(startYear - TimeSeries.MIN_YEAR, firstYear[id]);
+        int to = Math.min(endYear - TimeSeries.MIN_YEAR, firstYear[id] + length[id] - 1);
+        int base = offset[id] - firstYear[id];
+        for (int i = from; i <= to; i += 1) {
+            double count = values[base + i];
+            if (!Double.isNaN(count)) {
+                ts.set(i, count);
+            }
+        }
+        return ts;
+    }
+
+    /**
+     * Returns the sum of the counts of word ID between STARTYEAR and ENDYEAR in
+     * constant time. For integer counts (as in the NGrams files) the result is
+     * exact as long as the word's total stays below 2^53.
+     */
+    @Override
+    public double countSum(int id, int startYear, int endYear) {
+        if (length(id) == 0) {
+            return 0;
+        }
+        int from = Math.max(startYear - TimeSeries.MIN_YEAR - firstYear[id], 0);
+        int to = Math.min(endYear - TimeSeries.MIN_YEAR - firstYear[id], length[id] - 1);
+        if (from > to) {
+            return 0;
+        }
+        double before = from == 0 ? 0 : cumulative[offset[id] + from - 1];
+        return cumulative[offset[id] + to] - before;
+    }
+
+    @Override
+    public double countSum(String word, int startYear, int endYear) {
+        return countSum(dictionary.idOf(word), startYear, endYear);
+    }
+
+    /** Reads each word's total from the last slot of its cumulative run. */
+    @Override
+    public void forEachWord(ObjDoubleConsumer<String> action) {
+        for (int id = 0; id < length.length; id += 1) {
+            if (length[id] > 0) {
+                action.accept(dictionary.word(id), cumulative[offset[id] + length[id] - 1]);
+            }
+        }
+    }
+
+    /**
+     * Lays every row out again with the updated words widened to cover their
+     * new years. Untouched rows are copied as whole blocks, so the cost is one
+     * pass over the values array.
+     */
+    @Override
+    public ColumnarHistoryStore merge(ColumnarHistoryStore updates) {
+        if (updates.size() == 0) {
+            return this;
+        }
+        int[] ids = new int[updates.length.length];
+        for (int u = 0; u < ids.length; u += 1) {
+            ids[u] = updates.length(u) > 0 ? dictionary.intern(updates.dictionary().word(u)) : -1;
+        }
+        int words = Math.max(length.length, dictionary.size());
+        int[] updateIds = new int[words];
+        Arrays.fill(updateIds, -1);
+        for (int u = 0; u < ids.length; u += 1) {
+            if (ids[u] >= 0) {
+                updateIds[ids[u]] = u;
+            }
+        }
+
+        int[] newFirstYear = new int[words];
+        int[] newOffset = new int[words];
+        int[] newLength = new int[words];
+        int total = 0;
+        int present = 0;
+        for (int id = 0; id < words; id += 1) {
+            int u = updateIds[id];
+            int from = length(id) > 0 ? firstYear[id] : Integer.MAX_VALUE;
+            int to = length(id) > 0 ? firstYear[id] + length[id] : Integer.MIN_VALUE;
+            if (u >= 0) {
+                from = Math.min(from, updates.firstYear[u]);
+                to = Math.max(to, updates.firstYear[u] + updates.length[u]);
+            }
+            newOffset[id] = total;
+            if (to > from) {
+                newFirstYear[id] = from;
+                newLength[id] = to - from;
+                total += to - from;
+                present += 1;
+            }
+        }
+
+        double[] newValues = new double[total];
+        Arrays.fill(newValues, Double.NaN);
+        for (int id = 0; id < words; id += 1) {
+            if (length(id) > 0) {
+                System.arraycopy(values, offset[id], newValues,
+                        newOffset[id] + firstYear[id] - newFirstYear[id], length[id]);
+            }
+            int u = updateIds[id];
+            if (u >= 0) {
+                int base = newOffset[id] + updates.firstYear[u] - newFirstYear[id];
+                for (int j = 0; j < updates.length[u]; j += 1) {
+                    double count = updates.value(u, j);
+                    if (!Double.isNaN(count)) {
+                        newValues[base + j] = count;
+                    }
+                }
+            }
+        }
+        return new ColumnarHistoryStore(dictionary, newFirstYear, newOffset, newLength,
+                newValues, present);
+    }
+
+    /** Returns the number of words with at least one recorded year. */
+    int size() {
+        return size;
+    }
+
+    /** Returns the dictionary this store is indexed by. */
+    WordDictionary dictionary() {
+        return dictionary;
+    }
+
+    /** Returns the words with at least one recorded year, in ID order. */
+    String[] words() {
+        String[] words = new String[size];
+        int i = 0;
+        for (int id = 0; id < length.length; id += 1) {
+            if (length[id] > 0) {
+                words[i] = dictionary.word(id);
+                i += 1;
+            }
+        }
+        return words;
+    }
+
+    /** Returns the first recorded year of word ID as an offset from MIN_YEAR. */
+    int firstYear(int id) {
+        return firstYear[id];
+    }
+
+    /**
+     * Returns the number of dense year slots owned by word ID, or 0 if it has no
+     * data in this store.
+     */
+    int length(int id) {
+        if (id < 0 || id >= length.length) {
+            return 0;
+        }
+        return length[id];
+    }
+
+    /** Returns slot J of word ID, or NaN if that year was never recorded. */
+    double value(int id, int j) {
+        return values[offset[id] + j];
+    }
+
+    /**
+     * Buffers rows in parallel primitive arrays, then lays them out word by word
+     * in build(). Words may appear in any order; a repeated (word, year) keeps
+     * the last count added, as TimeSeries.put would. Years outside [MIN_YEAR,
+     * MAX_YEAR] are only rejected by build(), so drainTo can pass them on to a
+     * store that accepts them.
+     */
+    static class Builder implements HistoryStore.Builder {
+        private final WordDictionary dictionary;
+        private int[] rowWord = new int[1024];
+        private int[] rowYear = new int[1024];
+        private double[] rowCount = new double[1024];
+        private int rows;
+        private String lastWord;
+        private int lastId;
+
+        /** Creates a builder with its own, private WordDictionary. */
+        Builder() {
+            this(new WordDictionary());
+        }
+
+        Builder(WordDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void add(String word, int year, double count) {
+            // Words files are grouped by word, so most rows repeat the last one.
+            if (lastWord == null || !lastWord.equals(word)) {
+                lastId = dictionary.intern(word);
+                lastWord = word;
+            }
+            addRow(lastId, year - TimeSeries.MIN_YEAR, count);
+        }
+
+        /**
+         * Appends every row of OTHER to this builder, as if they had been added
+         * one by one after the rows already here.
+         */
+        void addAll(Builder other) {
+            int[] remap = new int[other.dictionary.size()];
+            for (int i = 0; i < remap.length; i += 1) {
+                remap[i] = dictionary.intern(other.dictionary.word(i));
+            }
+            ensureCapacity(rows + other.rows);
+            for (int r = 0; r < other.rows; r += 1) {
+                rowWord[rows + r] = remap[other.rowWord[r]];
+            }
+            System.arraycopy(other.rowYear, 0, rowYear, rows, other.rows);
+            System.arraycopy(other.rowCount, 0, rowCount, rows, other.rows);
+            rows += other.rows;
+        }
+
+        /** Adds every row of this builder to TARGET, in the order they were added. */
+        void drainTo(HistoryStore.Builder target) {
+            if (target instanceof Builder) {
+                ((Builder) target).addAll(this);
+                return;
+            }
+            for (int r = 0; r < rows; r += 1) {
+                target.add(dictionary.word(rowWord[r]), TimeSeries.MIN_YEAR + rowYear[r],
+                        rowCount[r]);
+            }
+        }
+
+        private void addRow(int id, int yearOffset, double count) {
+            ensureCapacity(rows + 1);
+            rowWord[rows] = id;
+            rowYear[rows] = yearOffset;
+            rowCount[rows] = count;
+            rows += 1;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > rowWord.length) {
+                int newCapacity = Math.max(capacity, rowWord.length * 2);
+                rowWord = Arrays.copyOf(rowWord, newCapacity);
+                rowYear = Arrays.copyOf(rowYear, newCapacity);
+                rowCount = Arrays.copyOf(rowCount, newCapacity);
+            }
+        }
+
+        @Override
+        public ColumnarHistoryStore build() {
+            int words = dictionary.size();
+            int[] minYear = new int[words];
+            int[] maxYear = new int[words];
+            Arrays.fill(minYear, Integer.MAX_VALUE);
+            Arrays.fill(maxYear, Integer.MIN_VALUE);
+            for (int r = 0; r < rows; r += 1) {
+                if (rowYear[r] < 0 || rowYear[r] > TimeSeries.MAX_YEAR - TimeSeries.MIN_YEAR) {
+                    throw new IllegalArgumentException("Year out of allowed range: "
+                            + (TimeSeries.MIN_YEAR + rowYear[r]));
+                }
+                int w = rowWord[r];
+                minYear[w] = Math.min(minYear[w], rowYear[r]);
+                maxYear[w] = Math.max(maxYear[w], rowYear[r]);
+            }
+
+            int[] offset = new int[words];
+            int[] length = new int[words];
+            int total = 0;
+            int present = 0;
+            for (int w = 0; w < words; w += 1) {
+                offset[w] = total;
+                if (maxYear[w] < minYear[w]) {
+                    minYear[w] = 0;
+                    continue;
+                }
+                length[w] = maxYear[w] - minYear[w] + 1;
+                total += length[w];
+                present += 1;
+            }
+
+            double[] values = new double[total];
+            Arrays.fill(values, Double.NaN);
+            for (int r = 0; r < rows; r += 1) {
+                int w = rowWord[r];
+                values[offset[w] + rowYear[r] - minYear[w]] = rowCount[r];
+            }
+            return new ColumnarHistoryStore(dictionary, minYear, offset, length, values, present);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package ngrams;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A HistoryStore that packs every word's history into one shared byte array,
+ * choosing per word whichever of two encodings is smaller:
+ * <pre>
+ *   sparse  header, points, then (year delta, count) per recorded year
+ *   dense   header, first year, span, then one count per year of the span
+ * </pre>
+ * Year deltas and spans are unsigned varints; the first delta of a sparse run
+ * is from MIN_YEAR. If every count of the word is a whole number below 2^53,
+ * as in the NGrams files, counts are varints too (dense runs store count + 1,
+ * and 0 for an unrecorded year), so nothing is rounded. Otherwise counts are
+ * 8-byte doubles, NaN for an unrecorded year in a dense run.
+ *
+ * Words that appear in a few scattered years cost a few bytes per year, and
+ * words recorded in almost every year of a long span drop the year deltas.
+ * Histories are decoded front to back on every query, stopping at the end of
+ * the requested range; summedWeights streams the decoded counts straight into
+ * the result without building a series per word.
+ */
+class CompressedHistoryStore implements HistoryStore {
+    private static final int DENSE = 1;
+    private static final int DOUBLE_COUNTS = 2;
+    /* Counts at or above this are stored as doubles. */
+    private static final double MAX_VARINT_COUNT = 0x1p53;
+
+    private final WordDictionary dictionary;
+    /* Word ID i owns bytes [start[i], start[i + 1]) of data; empty if it has no history. */
+    private final int[] start;
+    private final byte[] data;
+    private final int denseWords;
+    private final int size;
+
+    private CompressedHistoryStore(WordDictionary dictionary, int[] start, byte[] data,
+                                   int denseWords, int size) {
+        this.dictionary = dictionary;
+        this.start = start;
+        this.data = data;
+        this.denseWords = denseWords;
+        this.size = size;
+    }
+
+    /** Receives the recorded years of a history, as offsets from MIN_YEAR, in ascending order. */
+    private interface PointSink {
+        void accept(int yearIndex, double count);
+    }
+
+    /**
+     * Encodes every history in COLUMNS. Words interned after COLUMNS was built
+     * get empty histories.
+     */
+    static CompressedHistoryStore encode(ColumnarHistoryStore columns) {
+        WordDictionary dictionary = columns.dictionary();
+        int words = dictionary.size();
+        int[] start = new int[words + 1];
+        Output out = new Output();
+        int denseWords = 0;
+        int size = 0;
+        for (int id = 0; id < words; id += 1) {
+            start[id] = out.size;
+            int length = columns.length(id);
+            if (length == 0) {
+                continue;
+            }
+            if (encodeWord(columns, id, out)) {
+                denseWords += 1;
+            }
+            size += 1;
+        }
+        start[words] = out.size;
+        return new CompressedHistoryStore(dictionary, start, out.toByteArray(), denseWords, size);
+    }
+
+    /** Appends word ID of COLUMNS to OUT and returns true if the dense encoding was chosen. */
+    private static boolean encodeWord(ColumnarHistoryStore columns, int id, Output out) {
+        int first = columns.firstYear(id);
+        int length = columns.length(id);
+        boolean doubles = false;
+        int points = 0;
+        for (int j = 0; j < length; j += 1) {
+            double count = columns.value(id, j);
+            if (!Double.isNaN(count)) {
+                points += 1;
+                doubles |= !isVarintCount(count);
+            }
+        }
+
+        long sparseBytes = 1 + varintSize(points);
+        long denseBytes = 1 + varintSize(first) + varintSize(length);
+        int previous = 0;
+        for (int j = 0; j < length; j += 1) {
+            double count = columns.value(id, j);
+            if (Double.isNaN(count)) {
+                denseBytes += doubles ? 8 : 1;
+                continue;
+            }
+            sparseBytes += varintSize(first + j - previous) + (doubles ? 8 : varintSize((long) count));
+            denseBytes += doubles ? 8 : varintSize((long) count + 1);
+            previous = first + j;
+        }
+
+        boolean dense = denseBytes < sparseBytes;
+        out.write((dense ? DENSE : 0) | (doubles ? DOUBLE_COUNTS : 0));
+        if (dense) {
+            out.varint(first);
+            out.varint(length);
+            for (int j = 0; j < length; j += 1) {
+                double count = columns.value(id, j);
+                if (doubles) {
+                    out.doubleBits(count);
+                } else {
+                    out.varint(Double.isNaN(count) ? 0 : (long) count + 1);
+                }
+            }
+        } else {
+            out.varint(points);
+            previous = 0;
+            for (int j = 0; j < length; j += 1) {
+                double count = columns.value(id, j);
+                if (Double.isNaN(count)) {
+                    continue;
+                }
+                out.varint(first + j - previous);
+                previous = first + j;
+                if (doubles) {
+                    out.doubleBits(count);
+                } else {
+                    out.varint((long) count);
+                }
+            }
+        }
+        return dense;
+    }
+
+    private static boolean isVarintCount(double count) {
+        return Double.doubleToRawLongBits(count) >= 0 && count < MAX_VARINT_COUNT
+                && count == Math.rint(count);
+    }
+
+    private static int varintSize(long value) {
+        int bytes = 1;
+        while ((value >>>= 7) != 0) {
+            bytes += 1;
+        }
+        return bytes;
+    }
+
+    /**
+     * Passes the recorded years of word ID between year offsets FROM and TO,
+     * inclusive, to SINK.
+     */
+    private void decode(int id, int from, int to, PointSink sink) {
+        if (id < 0 || id >= start.length - 1 || start[id] == start[id + 1]) {
+            return;
+        }
+        Input in = new Input(data, start[id]);
+        int header = in.read();
+        boolean doubles = (header & DOUBLE_COUNTS) != 0;
+        if ((header & DENSE) != 0) {
+            int first = (int) in.varint();
+            int last = Math.min(to, first + (int) in.varint() - 1);
+            for (int i = first; i <= last; i += 1) {
+                if (doubles) {
+                    double count = in.doubleBits();
+                    if (i >= from && !Double.isNaN(count)) {
+                        sink.accept(i, count);
+                    }
+                } else {
+                    long count = in.varint();
+                    if (i >= from && count != 0) {
+                        sink.accept(i, count - 1);
+                    }
+                }
+            }
+        } else {
+            int points = (int) in.varint();
+            int year = 0;
+            for (int p = 0; p < points; p += 1) {
+                year += (int) in.varint();
+                if (year > to) {
+                    return;
+                }
+                double count = doubles ? in.doubleBits() : in.varint();
+                if (year >= from) {
+                    sink.accept(year, count);
+                }
+            }
+        }
+    }
+
+    private static int index(int year) {
+        return year - TimeSeries.MIN_YEAR;
+    }
+
+    @Override
+    public boolean contains(String word) {
+        int id = dictionary.idOf(word);
+        return id >= 0 && id + 1 < start.length && start[id] != start[id + 1];
+    }
+
+    @Override
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        return countHistory(dictionary.idOf(word), startYear, endYear);
+    }
+
+    @Override
+    public TimeSeries countHistory(String word) {
+        return countHistory(word, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
+    }
+
+    @Override
+    public TimeSeries countHistory(int id, int startYear, int endYear) {
+        TimeSeries ts = new TimeSeries();
+        decode(id, index(startYear), index(endYear),
+                (i, count) -> ts.put(TimeSeries.MIN_YEAR + i, count));
+        return ts;
+    }
+
+    @Override
+    public DenseTimeSeries denseHistory(String word, int startYear, int endYear) {
+        return denseHistory(dictionary.idOf(word), startYear, endYear);
+    }
+
+    @Override
+    public DenseTimeSeries denseHistory(int id, int startYear, int endYear) {
+        DenseTimeSeries ts = new DenseTimeSeries();
+        decode(id, index(startYear), index(endYear), ts::set);
+        return ts;
+    }
+
+    @Override
+    public double countSum(int id, int startYear, int endYear) {
+        double[] sum = new double[1];
+        decode(id, index(startYear), index(endYear), (i, count) -> sum[0] += count);
+        return sum[0];
+    }
+
+    @Override
+    public double countSum(String word, int startYear, int endYear) {
+        return countSum(dictionary.idOf(word), startYear, endYear);
+    }
+
+    /**
+     * Decodes each word once and adds its weights into the result as they
+     * come, in the same order and with the same errors as the default.
+     */
+    @Override
+    public DenseTimeSeries summedWeights(Collection<String> words, DenseTimeSeries totals,
+                                         int startYear, int endYear) {
+        DenseTimeSeries sum = new DenseTimeSeries();
+        for (String word : words) {
+            decode(dictionary.idOf(word), index(startYear), index(endYear), (i, count) -> {
+                if (!totals.isPresent(i)) {
+                    throw new IllegalArgumentException(
+                            "Missing year in ts: " + (TimeSeries.MIN_YEAR + i));
+                }
+                sum.accumulate(i, count / totals.valueAt(i));
+            });
+        }
+        return sum;
+    }
+
+    @Override
+    public void forEachWord(ObjDoubleConsumer<String> action) {
+        for (int id = 0; id + 1 < start.length; id += 1) {
+            if (start[id] != start[id + 1]) {
+                action.accept(dictionary.word(id),
+                        countSum(id, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR));
+            }
+        }
+    }
+
+    /** Decodes every history into a columnar builder, adds UPDATES after them, and encodes the result. */
+    @Override
+    public CompressedHistoryStore merge(ColumnarHistoryStore updates) {
+        if (updates.size() == 0) {
+            return this;
+        }
+        ColumnarHistoryStore.Builder rows = new ColumnarHistoryStore.Builder(dictionary);
+        for (int id = 0; id + 1 < start.length; id += 1) {
+            String word = dictionary.word(id);
+            decode(id, 0, DenseTimeSeries.YEARS - 1,
+                    (i, count) -> rows.add(word, TimeSeries.MIN_YEAR + i, count));
+        }
+        for (String word : updates.words()) {
+            for (Map.Entry<Integer, Double> entry : updates.countHistory(word).entrySet()) {
+                rows.add(word, entry.getKey(), entry.getValue());
+            }
+        }
+        return encode(rows.build());
+    }
+
+    /** Returns the number of words with at least one recorded year. */
+    int size() {
+        return size;
+    }
+
+    /** Returns the number of words stored with the dense encoding. */
+    int denseWords() {
+        return denseWords;
+    }
+
+    /** Returns the size of the encoded histories in bytes, not counting the per-word offsets. */
+    int encodedBytes() {
+        return data.length;
+    }
+
+    /** A growable byte array that varints and doubles are appended to. */
+    private static final class Output {
+        private byte[] bytes = new byte[1 << 12];
+        private int size;
+
+        void write(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size] = (byte) b;
+            size += 1;
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void doubleBits(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (bits >>> shift));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+
+    /** Reads varints and doubles from a byte array, starting at a given position. */
+    private static final class Input {
+        private final byte[] bytes;
+        private int pos;
+
+        Input(byte[] bytes, int pos) {
+            this.bytes = bytes;
+            this.pos = pos;
+        }
+
+        int read() {
+            int b = bytes[pos] & 0xFF;
+            pos += 1;
+            return b;
+        }
+
+        long varint() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = bytes[pos];
+                pos += 1;
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        double doubleBits() {
+            long bits = 0;
+            for (int i = 0; i < 8; i += 1) {
+                bits = (bits << 8) | (bytes[pos + i] & 0xFF);
+            }
+            pos += 8;
+            return Double.longBitsToDouble(bits);
+        }
+    }
+
+    /**
+     * Collects rows like a ColumnarHistoryStore.Builder and encodes them once
+     * all are in. The columnar layout only lives until build() returns.
+     */
+    static class Builder implements HistoryStore.Builder {
+        private final ColumnarHistoryStore.Builder rows;
+
+        Builder(WordDictionary dictionary) {
+            rows = new ColumnarHistoryStore.Builder(dictionary);
+        }
+
+        @Override
+        public void add(String word, int year, double count) {
+            rows.add(word, year, count);
+        }
+
+        @Override
+        public CompressedHistoryStore build() {
+            return encode(rows.build());
+        }
+    }
+}
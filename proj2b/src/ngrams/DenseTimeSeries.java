@@ -0,0 +1,205 @@
+package ngrams;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A time series over [MIN_YEAR, MAX_YEAR] backed by one primitive array
+ * indexed by year - MIN_YEAR, plus a bitmask of the years that are present.
+ * Missing years always hold 0, so plus, dividedBy and summed are plain loops
+ * over aligned arrays that the JIT can unroll and vectorize.
+ *
+ * Follows the same rules as TimeSeries.plus and TimeSeries.dividedBy, and
+ * years() and data() return the same lists a TimeSeries with equal contents
+ * would.
+ */
+public final class DenseTimeSeries {
+    static final int YEARS = TimeSeries.MAX_YEAR - TimeSeries.MIN_YEAR + 1;
+
+    private final double[] values = new double[YEARS];
+    private final long[] present = new long[(YEARS + 63) >>> 6];
+    /* Present years all lie in [lo, hi); lo >= hi when empty. */
+    private int lo = YEARS;
+    private int hi = 0;
+
+    /** Constructs an empty series. */
+    public DenseTimeSeries() {
+    }
+
+    /** Returns a dense copy of TS, which must only hold years in [MIN_YEAR, MAX_YEAR]. */
+    public static DenseTimeSeries of(TimeSeries ts) {
+        DenseTimeSeries dense = new DenseTimeSeries();
+        for (Map.Entry<Integer, Double> entry : ts.entrySet()) {
+            dense.put(entry.getKey(), entry.getValue());
+        }
+        return dense;
+    }
+
+    /** Records VALUE for YEAR, replacing any previous value. */
+    public void put(int year, double value) {
+        if (year < TimeSeries.MIN_YEAR || year > TimeSeries.MAX_YEAR) {
+            throw new IllegalArgumentException("Year out of allowed range: " + year);
+        }
+        set(year - TimeSeries.MIN_YEAR, value);
+    }
+
+    /** Stores VALUE at index I (year - MIN_YEAR) and marks it present. */
+    void set(int i, double value) {
+        values[i] = value;
+        present[i >>> 6] |= 1L << i;
+        lo = Math.min(lo, i);
+        hi = Math.max(hi, i + 1);
+    }
+
+    /** Adds VALUE to index I (year - MIN_YEAR) and marks it present. */
+    void accumulate(int i, double value) {
+        values[i] += value;
+        present[i >>> 6] |= 1L << i;
+        lo = Math.min(lo, i);
+        hi = Math.max(hi, i + 1);
+    }
+
+    /** Returns the value at index I, or 0 if that year is missing. */
+    double valueAt(int i) {
+        return values[i];
+    }
+
+    /** Returns true if YEAR has a value. */
+    public boolean containsYear(int year) {
+        int i = year - TimeSeries.MIN_YEAR;
+        return i >= 0 && i < YEARS && isPresent(i);
+    }
+
+    /** Returns the value for YEAR, or NaN if the year is missing. */
+    public double get(int year) {
+        return containsYear(year) ? values[year - TimeSeries.MIN_YEAR] : Double.NaN;
+    }
+
+    /** Returns true if index I (year - MIN_YEAR) has a value. */
+    boolean isPresent(int i) {
+        return (present[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /** Returns the number of years with a value. */
+    public int size() {
+        int size = 0;
+        for (long word : present) {
+            size += Long.bitCount(word);
+        }
+        return size;
+    }
+
+    /** Returns true if no year has a value. */
+    public boolean isEmpty() {
+        return lo >= hi;
+    }
+
+    /** Returns all years for this series in ascending order. */
+    public List<Integer> years() {
+        List<Integer> years = new ArrayList<>(size());
+        for (int i = lo; i < hi; i += 1) {
+            if (isPresent(i)) {
+                years.add(TimeSeries.MIN_YEAR + i);
+            }
+        }
+        return years;
+    }
+
+    /** Returns all values for this series, in the order of years(). */
+    public List<Double> data() {
+        List<Double> data = new ArrayList<>(size());
+        for (int i = lo; i < hi; i += 1) {
+            if (isPresent(i)) {
+                data.add(values[i]);
+            }
+        }
+        return data;
+    }
+
+    /** Returns a TimeSeries with the same contents. */
+    public TimeSeries toTimeSeries() {
+        TimeSeries ts = new TimeSeries();
+        for (int i = lo; i < hi; i += 1) {
+            if (isPresent(i)) {
+                ts.put(TimeSeries.MIN_YEAR + i, values[i]);
+            }
+        }
+        return ts;
+    }
+
+    /**
+     * Returns the year-wise sum of this series and TS. A year present in only
+     * one of them keeps that one's value.
+     */
+    public DenseTimeSeries plus(DenseTimeSeries ts) {
+        DenseTimeSeries sum = copy();
+        sum.add(ts);
+        return sum;
+    }
+
+    /**
+     * Returns the year-wise quotient of this series divided by TS. Throws an
+     * IllegalArgumentException if TS is missing a year that this series has;
+     * years only in TS are ignored.
+     */
+    public DenseTimeSeries dividedBy(DenseTimeSeries ts) {
+        for (int w = 0; w < present.length; w += 1) {
+            long missing = present[w] & ~ts.present[w];
+            if (missing != 0) {
+                int year = TimeSeries.MIN_YEAR + (w << 6) + Long.numberOfTrailingZeros(missing);
+                throw new IllegalArgumentException("Missing year in ts: " + year);
+            }
+        }
+        DenseTimeSeries result = new DenseTimeSeries();
+        double[] a = values;
+        double[] b = ts.values;
+        double[] r = result.values;
+        for (int i = lo; i < hi; i += 1) {
+            r[i] = a[i] / b[i];
+        }
+        /* Gaps inside [lo, hi) divided 0 by whatever ts holds there; restore the zeros. */
+        for (int i = lo; i < hi; i += 1) {
+            if (!isPresent(i)) {
+                r[i] = 0;
+            }
+        }
+        System.arraycopy(present, 0, result.present, 0, present.length);
+        result.lo = lo;
+        result.hi = hi;
+        return result;
+    }
+
+    /** Returns the year-wise sum of every series in SERIES, or an empty series if there are none. */
+    public static DenseTimeSeries summed(Collection<DenseTimeSeries> series) {
+        DenseTimeSeries sum = new DenseTimeSeries();
+        for (DenseTimeSeries ts : series) {
+            sum.add(ts);
+        }
+        return sum;
+    }
+
+    /** Adds TS into this series in place. */
+    private void add(DenseTimeSeries ts) {
+        double[] a = values;
+        double[] b = ts.values;
+        for (int i = ts.lo; i < ts.hi; i += 1) {
+            a[i] += b[i];
+        }
+        for (int w = 0; w < present.length; w += 1) {
+            present[w] |= ts.present[w];
+        }
+        lo = Math.min(lo, ts.lo);
+        hi = Math.max(hi, ts.hi);
+    }
+
+    private DenseTimeSeries copy() {
+        DenseTimeSeries copy = new DenseTimeSeries();
+        System.arraycopy(values, 0, copy.values, 0, YEARS);
+        System.arraycopy(present, 0, copy.present, 0, present.length);
+        copy.lo = lo;
+        copy.hi = hi;
+        return copy;
+    }
+}
@@ -0,0 +1,112 @@
+package ngrams;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * The per-word count data behind an NGramMap. Implementations decide how the
+ * (word, year, count) points are laid out in memory; NGramMap only ever asks
+ * for TimeSeries views of them.
+ */
+interface HistoryStore {
+
+    /** Returns true if WORD has at least one recorded year. */
+    boolean contains(String word);
+
+    /**
+     * Returns a TimeSeries holding the counts of WORD between STARTYEAR and
+     * ENDYEAR, inclusive, which the caller may modify without affecting the
+     * store (either a copy or a copy-on-write view). Callers have already
+     * clamped the years to [MIN_YEAR, MAX_YEAR]. Returns an empty TimeSeries
+     * for unknown words.
+     */
+    TimeSeries countHistory(String word, int startYear, int endYear);
+
+    /** Returns a TimeSeries holding every recorded count of WORD, as in countHistory(String, int, int). */
+    TimeSeries countHistory(String word);
+
+    /**
+     * Same as countHistory(String, int, int), for the word with ID WORDID in
+     * the NGramMap's WordDictionary. IDs the dictionary never handed out count
+     * as unknown words.
+     */
+    TimeSeries countHistory(int wordId, int startYear, int endYear);
+
+    /**
+     * Same as countHistory(String, int, int), but as a DenseTimeSeries. The
+     * default converts the TimeSeries; array-backed stores copy their rows
+     * directly.
+     */
+    default DenseTimeSeries denseHistory(String word, int startYear, int endYear) {
+        return DenseTimeSeries.of(countHistory(word, startYear, endYear));
+    }
+
+    /** Same as denseHistory(String, int, int), for the word with ID WORDID. */
+    default DenseTimeSeries denseHistory(int wordId, int startYear, int endYear) {
+        return DenseTimeSeries.of(countHistory(wordId, startYear, endYear));
+    }
+
+    /**
+     * Returns the sum of the counts of word WORDID between STARTYEAR and
+     * ENDYEAR, inclusive, or 0 for unknown words. Years are already clamped.
+     */
+    default double countSum(int wordId, int startYear, int endYear) {
+        return sum(countHistory(wordId, startYear, endYear));
+    }
+
+    /** Same as countSum(int, int, int), for WORD. */
+    default double countSum(String word, int startYear, int endYear) {
+        return sum(countHistory(word, startYear, endYear));
+    }
+
+    /**
+     * Returns, for each year between STARTYEAR and ENDYEAR, the sum over WORDS
+     * of their counts divided by TOTALS. Unknown words are skipped. Years are
+     * already clamped.
+     */
+    default DenseTimeSeries summedWeights(Collection<String> words, DenseTimeSeries totals,
+                                          int startYear, int endYear) {
+        List<DenseTimeSeries> weights = new ArrayList<>(words.size());
+        for (String word : words) {
+            DenseTimeSeries counts = denseHistory(word, startYear, endYear);
+            weights.add(counts.isEmpty() ? counts : counts.dividedBy(totals));
+        }
+        return DenseTimeSeries.summed(weights);
+    }
+
+    /**
+     * Calls ACTION once for every word with at least one recorded year, with
+     * the sum of all its counts. The order is unspecified.
+     */
+    void forEachWord(ObjDoubleConsumer<String> action);
+
+    /** Returns false if forEachWord is not supported. */
+    default boolean enumerable() {
+        return true;
+    }
+
+    /**
+     * Returns a new store holding this store's histories with the counts in
+     * UPDATES merged in: a recorded year in UPDATES replaces the same year
+     * here, and new words and years are added. This store is not modified,
+     * so readers may keep using it while the merge runs.
+     */
+    HistoryStore merge(ColumnarHistoryStore updates);
+
+    private static double sum(TimeSeries ts) {
+        double total = 0;
+        for (double count : ts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** Accumulates rows read from a words file and produces a HistoryStore. */
+    interface Builder {
+        void add(String word, int year, double count);
+
+        HistoryStore build();
+    }
+}
@@ -0,0 +1,228 @@
+package ngrams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A read-only HistoryStore over a memory-mapped snapshot file. The snapshot
+ * has the same dense layout as ColumnarHistoryStore, plus a sorted UTF-8
+ * string pool so words can be found by binary search without building a
+ * HashMap at startup.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   header     8 ints: MAGIC, VERSION, words, values, pool bytes, 0, 0, 0
+ *   firstYear  int[words]
+ *   offset     int[words]
+ *   length     int[words]
+ *   wordStart  int[words + 1], byte offsets into the pool
+ *   padding    to a multiple of 8 bytes
+ *   values     double[values], NaN for unrecorded years
+ *   totals     double[YEARS], total counts from MIN_YEAR, NaN if absent
+ *   pool       UTF-8 bytes of every word, sorted as unsigned bytes
+ * </pre>
+ */
+class MappedHistoryStore implements HistoryStore {
+    static final int MAGIC = 0x4E47524D;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int YEARS = TimeSeries.MAX_YEAR - TimeSeries.MIN_YEAR + 1;
+
+    private final int words;
+    private final IntBuffer firstYear;
+    private final IntBuffer offset;
+    private final IntBuffer length;
+    private final IntBuffer wordStart;
+    private final DoubleBuffer values;
+    private final DoubleBuffer totals;
+    private final ByteBuffer pool;
+    private final WordDictionary dictionary;
+
+    private MappedHistoryStore(ByteBuffer buf, WordDictionary dictionary) {
+        this.dictionary = dictionary;
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an NGram snapshot file");
+        }
+        words = buf.getInt(8);
+        int valueCount = buf.getInt(12);
+        int poolBytes = buf.getInt(16);
+
+        int pos = HEADER_BYTES;
+        firstYear = slice(buf, pos, words * 4).asIntBuffer();
+        pos += words * 4;
+        offset = slice(buf, pos, words * 4).asIntBuffer();
+        pos += words * 4;
+        length = slice(buf, pos, words * 4).asIntBuffer();
+        pos += words * 4;
+        wordStart = slice(buf, pos, (words + 1) * 4).asIntBuffer();
+        pos = align8(pos + (words + 1) * 4);
+        values = slice(buf, pos, valueCount * 8).asDoubleBuffer();
+        pos += valueCount * 8;
+        totals = slice(buf, pos, YEARS * 8).asDoubleBuffer();
+        pos += YEARS * 8;
+        pool = slice(buf, pos, poolBytes);
+    }
+
+    /**
+     * Maps SNAPSHOTFILENAME read-only and wraps it as a HistoryStore. Word IDs
+     * passed to countHistory(int, int, int) are resolved through DICTIONARY.
+     */
+    static MappedHistoryStore open(String snapshotFilename, WordDictionary dictionary) {
+        try (FileChannel channel = FileChannel.open(Path.of(snapshotFilename),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedHistoryStore(buf, dictionary);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to map snapshot file", e);
+        }
+    }
+
+    static int align8(int pos) {
+        return (pos + 7) & ~7;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buf, int pos, int bytes) {
+        return buf.duplicate().position(pos).limit(pos + bytes).slice();
+    }
+
+    /** Returns the total counts stored in the snapshot. */
+    TimeSeries totalCounts() {
+        TimeSeries ts = new TimeSeries();
+        for (int i = 0; i < YEARS; i += 1) {
+            double count = totals.get(i);
+            if (!Double.isNaN(count)) {
+                ts.put(TimeSeries.MIN_YEAR + i, count);
+            }
+        }
+        return ts;
+    }
+
+    /** Returns the index of WORD in the sorted pool, or -1 if absent. */
+    private int find(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = words - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareToPooled(key, mid);
+            if (cmp < 0) {
+                hi = mid - 1;
+            } else if (cmp > 0) {
+                lo = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareToPooled(byte[] key, int index) {
+        int start = wordStart.get(index);
+        int len = wordStart.get(index + 1) - start;
+        int n = Math.min(key.length, len);
+        for (int i = 0; i < n; i += 1) {
+            int cmp = Byte.toUnsignedInt(key[i]) - Byte.toUnsignedInt(pool.get(start + i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return key.length - len;
+    }
+
+    @Override
+    public boolean contains(String word) {
+        return find(word) >= 0;
+    }
+
+    @Override
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        TimeSeries ts = new TimeSeries();
+        int id = find(word);
+        if (id < 0) {
+            return ts;
+        }
+        int first = TimeSeries.MIN_YEAR + firstYear.get(id);
+        int from = Math.max(startYear, first);
+        int to = Math.min(endYear, first + length.get(id) - 1);
+        int base = offset.get(id) - first;
+        for (int year = from; year <= to; year += 1) {
+            double count = values.get(base + year);
+            if (!Double.isNaN(count)) {
+                ts.put(year, count);
+            }
+        }
+        return ts;
+    }
+
+    @Override
+    public DenseTimeSeries denseHistory(String word, int startYear, int endYear) {
+        DenseTimeSeries ts = new DenseTimeSeries();
+        int id = find(word);
+        if (id < 0) {
+            return ts;
+        }
+        int from = Math.max(startYear - TimeSeries.MIN_YEAR, firstYear.get(id));
+        int to = Math.min(endYear - TimeSeries.MIN_YEAR, firstYear.get(id) + length.get(id) - 1);
+        int base = offset.get(id) - firstYear.get(id);
+        for (int i = from; i <= to; i += 1) {
+            double count = values.get(base + i);
+            if (!Double.isNaN(count)) {
+                ts.set(i, count);
+            }
+        }
+        return ts;
+    }
+
+    @Override
+    public DenseTimeSeries denseHistory(int wordId, int startYear, int endYear) {
+        if (wordId < 0 || wordId >= dictionary.size()) {
+            return new DenseTimeSeries();
+        }
+        return denseHistory(dictionary.word(wordId), startYear, endYear);
+    }
+
+    /** Decodes every word of the pool, in pool order. */
+    @Override
+    public void forEachWord(ObjDoubleConsumer<String> action) {
+        for (int id = 0; id < words; id += 1) {
+            int start = wordStart.get(id);
+            byte[] utf8 = new byte[wordStart.get(id + 1) - start];
+            pool.get(start, utf8);
+            double total = 0;
+            for (int j = 0; j < length.get(id); j += 1) {
+                double count = values.get(offset.get(id) + j);
+                if (!Double.isNaN(count)) {
+                    total += count;
+                }
+            }
+            action.accept(new String(utf8, StandardCharsets.UTF_8), total);
+        }
+    }
+
+    @Override
+    public HistoryStore merge(ColumnarHistoryStore updates) {
+        throw new UnsupportedOperationException(
+                "Snapshot files are read-only; recompile the snapshot with the new rows");
+    }
+
+    @Override
+    public TimeSeries countHistory(String word) {
+        return countHistory(word, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
+    }
+
+    @Override
+    public TimeSeries countHistory(int wordId, int startYear, int endYear) {
+        if (wordId < 0 || wordId >= dictionary.size()) {
+            return new TimeSeries();
+        }
+        return countHistory(dictionary.word(wordId), startYear, endYear);
+    }
+}
@@ -1,11 +1,14 @@
 package ngrams;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.BiConsumer;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.InetSocketAddress;
 
 
 /**
@@ -19,15 +22,136 @@ import java.util.Map;
  * @author Josh Hug
  */
 public class NGramMap {
-    private Map<String, TimeSeries> wordMap;
-    private TimeSeries totalCounts;
+    /** How the per-word histories are laid out in memory. */
+    public enum StorageMode {
+        /** One TreeMap-backed TimeSeries per word. */
+        TREE_MAP,
+        /** Dense primitive arrays in one shared block; see ColumnarHistoryStore. */
+        COLUMNAR,
+        /** Varint-encoded runs in one shared byte array; see CompressedHistoryStore. */
+        COMPRESSED
+    }
+
+    /** Words files at least this large are parsed in parallel. */
+    static final long PARALLEL_LOAD_BYTES = 1 << 22;
+
+    /**
+     * Everything a query reads, published as one immutable unit. Updates build
+     * a new Snapshot next to the current one and swap it in, so queries never
+     * wait and never see half of an update.
+     */
+    private record Snapshot(HistoryStore store, TimeSeries totalCounts,
+                            DenseTimeSeries denseTotals, long version, WordIndex.Lazy index,
+                            WeightPyramid.Cache pyramids) {
+        Snapshot(HistoryStore store, TimeSeries totalCounts, long version) {
+            this(store, totalCounts, dense(totalCounts), version, new WordIndex.Lazy(store),
+                    new WeightPyramid.Cache(store));
+        }
+
+        /**
+         * Returns false if WORD is certainly not in the store, judging by the
+         * Bloom filter of the word index. Only autocomplete builds the index,
+         * so until it has run every word might be present.
+         */
+        boolean mightContain(String word) {
+            WordIndex words = index.peek();
+            return words == null || words.mightContain(word);
+        }
+    }
+
+    private volatile Snapshot snapshot;
+    private final WordDictionary dictionary;
 
     /**
      * Constructs an NGramMap from WORDSFILENAME and COUNTSFILENAME.
      */
     public NGramMap(String wordsFilename, String countsFilename) {
-        wordMap = new HashMap<>();
-        totalCounts = new TimeSeries();
+        this(wordsFilename, countsFilename, StorageMode.TREE_MAP);
+    }
+
+    /**
+     * Constructs an NGramMap from WORDSFILENAME and COUNTSFILENAME, storing the
+     * word histories as described by MODE.
+     */
+    public NGramMap(String wordsFilename, String countsFilename, StorageMode mode) {
+        this(wordsFilename, countsFilename, mode, new WordDictionary());
+    }
+
+    /**
+     * Constructs an NGramMap from WORDSFILENAME and COUNTSFILENAME, storing the
+     * word histories as described by MODE and numbering words with DICTIONARY.
+     * Pass the same dictionary to a WordNet to share word IDs with it.
+     */
+    public NGramMap(String wordsFilename, String countsFilename, StorageMode mode,
+                    WordDictionary dictionary) {
+        this.dictionary = dictionary;
+        HistoryStore.Builder builder = switch (mode) {
+            case TREE_MAP -> new TreeMapHistoryStore.Builder(dictionary);
+            case COLUMNAR -> new ColumnarHistoryStore.Builder(dictionary);
+            case COMPRESSED -> new CompressedHistoryStore.Builder(dictionary);
+        };
+        readWords(wordsFilename, builder);
+        snapshot = new Snapshot(builder.build(), readTotalCounts(countsFilename), 0);
+    }
+
+    /**
+     * Opens an NGramMap from SNAPSHOTFILENAME, a binary snapshot written by
+     * NGramSnapshotCompiler. The snapshot is memory-mapped rather than parsed,
+     * so construction is nearly instant and the pages are shared with any
+     * other process that maps the same file.
+     */
+    public NGramMap(String snapshotFilename) {
+        this(snapshotFilename, new WordDictionary());
+    }
+
+    /**
+     * Opens an NGramMap from SNAPSHOTFILENAME, resolving word IDs through
+     * DICTIONARY. Words are looked up in the snapshot itself, so they are not
+     * added to the dictionary.
+     */
+    public NGramMap(String snapshotFilename, WordDictionary dictionary) {
+        this.dictionary = dictionary;
+        MappedHistoryStore mapped = MappedHistoryStore.open(snapshotFilename, dictionary);
+        snapshot = new Snapshot(mapped, mapped.totalCounts(), 0);
+    }
+
+    /**
+     * Connects to the NGramShardServers at SHARDS, listed in shard order, and
+     * reads the total counts from COUNTSFILENAME, which must be the counts file
+     * the shards were started with. Queries are answered by the shards that
+     * own the words; see ShardedHistoryStore. Word IDs are resolved through
+     * DICTIONARY. Sharded maps cannot be updated with apply().
+     */
+    public NGramMap(List<InetSocketAddress> shards, String countsFilename,
+                    WordDictionary dictionary) {
+        this(new ShardedHistoryStore(shards, dictionary), readTotalCounts(countsFilename),
+                dictionary);
+    }
+
+    /** Wraps an already built STORE and TOTALCOUNTS. */
+    NGramMap(HistoryStore store, TimeSeries totalCounts, WordDictionary dictionary) {
+        this.dictionary = dictionary;
+        snapshot = new Snapshot(store, totalCounts, 0);
+    }
+
+    private static DenseTimeSeries dense(TimeSeries ts) {
+        return DenseTimeSeries.of(new TimeSeries(ts, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR));
+    }
+
+    /**
+     * Feeds every (word, year, count) row of WORDSFILENAME to BUILDER. Files of
+     * at least PARALLEL_LOAD_BYTES are parsed by a ParallelWordsLoader.
+     */
+    static void readWords(String wordsFilename, HistoryStore.Builder builder) {
+        if (new File(wordsFilename).length() >= PARALLEL_LOAD_BYTES) {
+            new ParallelWordsLoader().load(wordsFilename, builder);
+        } else {
+            readWordsSequential(wordsFilename, builder);
+        }
+    }
+
+    /** Feeds every row of WORDSFILENAME to BUILDER from a single BufferedReader. */
+    static void readWordsSequential(String wordsFilename, HistoryStore.Builder builder) {
         try (BufferedReader reader = new BufferedReader(new FileReader(wordsFilename))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -40,14 +164,16 @@ public class NGramMap {
                 int year = Integer.parseInt(parts[1]);
                 double count = Double.parseDouble(parts[2]);
 
-                wordMap.putIfAbsent(word, new TimeSeries());
-                wordMap.get(word).put(year, count);
+                builder.add(word, year, count);
             }
         } catch (IOException e) {
             throw new RuntimeException("Failed to read words file", e);
         }
+    }
 
-        // Load total counts
+    /** Reads the per-year total counts in COUNTSFILENAME. */
+    static TimeSeries readTotalCounts(String countsFilename) {
+        TimeSeries totals = new TimeSeries();
         try (BufferedReader reader = new BufferedReader(new FileReader(countsFilename))) {
             String line;
             while ((line = reader.readLine()) != null) {
@@ -59,36 +185,143 @@ public class NGramMap {
                 int year = Integer.parseInt(parts[0]);
                 double count = Double.parseDouble(parts[1]);
 
-                totalCounts.put(year, count);
+                totals.put(year, count);
             }
         } catch (IOException e) {
             throw new RuntimeException("Failed to read counts file", e);
         }
-
+        return totals;
     }
 
-
-
     /**
      * Provides the history of WORD between STARTYEAR and ENDYEAR, inclusive of both ends. The
      * returned TimeSeries should be a copy, not a link to this NGramMap's TimeSeries. In other
      * words, changes made to the object returned by this function should not also affect the
      * NGramMap. This is also known as a "defensive copy". If the word is not in the data files,
-     * returns an empty TimeSeries.
+     * returns an empty TimeSeries. With the TREE_MAP layout the copy is a view over the stored
+     * years, and the range is only duplicated if the caller modifies it.
      */
     public TimeSeries countHistory(String word, int startYear, int endYear) {
-        if (!wordMap.containsKey(word)) {
+        startYear = Math.max(TimeSeries.MIN_YEAR, startYear);
+        endYear = Math.min(TimeSeries.MAX_YEAR, endYear);
+
+        Snapshot current = snapshot;
+        if (startYear > endYear || !current.mightContain(word)) {
             return new TimeSeries();
         }
 
+        return current.store().countHistory(word, startYear, endYear);
+    }
+
+    /**
+     * Provides the history of the word with ID WORDID in dictionary() between
+     * STARTYEAR and ENDYEAR, inclusive of both ends. Behaves like
+     * countHistory(String, int, int), but skips hashing the word when the
+     * histories are indexed by ID.
+     */
+    public TimeSeries countHistory(int wordId, int startYear, int endYear) {
         startYear = Math.max(TimeSeries.MIN_YEAR, startYear);
         endYear = Math.min(TimeSeries.MAX_YEAR, endYear);
 
         if (startYear > endYear) {
             return new TimeSeries();
         }
+        return snapshot.store().countHistory(wordId, startYear, endYear);
+    }
+
+    /**
+     * Returns the sum of the counts of WORD between STARTYEAR and ENDYEAR,
+     * inclusive, or 0 if the word is not in the data files. With the columnar
+     * store this takes constant time and builds no TimeSeries.
+     */
+    public double countSum(String word, int startYear, int endYear) {
+        startYear = Math.max(TimeSeries.MIN_YEAR, startYear);
+        endYear = Math.min(TimeSeries.MAX_YEAR, endYear);
+
+        Snapshot current = snapshot;
+        if (startYear > endYear || !current.mightContain(word)) {
+            return 0;
+        }
+        return current.store().countSum(word, startYear, endYear);
+    }
+
+    /** Same as countSum(String, int, int), for the word with ID WORDID in dictionary(). */
+    public double countSum(int wordId, int startYear, int endYear) {
+        startYear = Math.max(TimeSeries.MIN_YEAR, startYear);
+        endYear = Math.min(TimeSeries.MAX_YEAR, endYear);
 
-        return new TimeSeries(wordMap.get(word), startYear, endYear);
+        if (startYear > endYear) {
+            return 0;
+        }
+        return snapshot.store().countSum(wordId, startYear, endYear);
+    }
+
+    /** Returns true if WORD has at least one recorded year. */
+    boolean contains(String word) {
+        Snapshot current = snapshot;
+        return current.mightContain(word) && current.store().contains(word);
+    }
+
+    /**
+     * Returns up to K words that start with PREFIX, by descending total count
+     * over all years and alphabetically among equal counts. The word index
+     * behind this is built on first use and again after each apply(). Sharded
+     * maps throw an UnsupportedOperationException.
+     */
+    public List<String> autocomplete(String prefix, int k) {
+        WordIndex index = snapshot.index().get();
+        if (index == null) {
+            throw new UnsupportedOperationException("Sharded NGramMaps cannot autocomplete");
+        }
+        return index.complete(prefix, k);
+    }
+
+    /** Returns the dictionary that numbers the words of this NGramMap. */
+    public WordDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of updates applied since construction. Anything that
+     * caches query results can compare versions to notice new data.
+     */
+    public long version() {
+        return snapshot.version();
+    }
+
+    /**
+     * Merges the rows of WORDSFILENAME and the totals of COUNTSFILENAME, in the
+     * usual file formats, into this map. See apply(Update).
+     */
+    public void ingest(String wordsFilename, String countsFilename) {
+        Update update = new Update();
+        readWords(wordsFilename, update.rows);
+        for (var entry : readTotalCounts(countsFilename).entrySet()) {
+            update.putTotal(entry.getKey(), entry.getValue());
+        }
+        apply(update);
+    }
+
+    /**
+     * Merges UPDATE into this map while queries keep running. The merged
+     * histories are built next to the current ones and published in one step:
+     * a query sees either none or all of UPDATE, and TimeSeries handed out
+     * earlier keep their old contents. Updates are applied one at a time.
+     * Maps opened from a snapshot file are read-only and throw an
+     * UnsupportedOperationException.
+     *
+     * Add the totals for any new year in the same update as its counts, or
+     * weight queries over that year fail until the totals arrive.
+     */
+    public synchronized void apply(Update update) {
+        Snapshot current = snapshot;
+        HistoryStore store = current.store().merge(update.rows.build());
+        TimeSeries totals = current.totalCounts();
+        if (!update.totalCounts.isEmpty()) {
+            totals = new TimeSeries(totals);
+            totals.putAll(update.totalCounts);
+        }
+        snapshot = new Snapshot(store, totals, current.version() + 1);
     }
 
     /**
@@ -98,17 +331,23 @@ public class NGramMap {
      * is not in the data files, returns an empty TimeSeries.
      */
     public TimeSeries countHistory(String word) {
-        if (!wordMap.containsKey(word)) {
+        Snapshot current = snapshot;
+        if (!current.mightContain(word)) {
             return new TimeSeries();
         }
-        return new TimeSeries(wordMap.get(word));
+        return current.store().countHistory(word);
     }
 
     /**
      * Returns a defensive copy of the total number of words recorded per year in all volumes.
+     * The copy is a view that only duplicates the data if it is modified.
      */
     public TimeSeries totalCountHistory() {
-        return new TimeSeries(totalCounts);
+        TimeSeries totalCounts = snapshot.totalCounts();
+        if (totalCounts.isEmpty()) {
+            return new TimeSeries();
+        }
+        return TimeSeries.view(totalCounts, totalCounts.firstKey(), totalCounts.lastKey());
     }
 
     /**
@@ -128,16 +367,43 @@ public class NGramMap {
             return new TimeSeries();
         }
 
-        TimeSeries wordCounts = countHistory(word, startYear, endYear);
-        TimeSeries totalCountsInRange = new TimeSeries(totalCounts, startYear, endYear);
+        return denseWeightHistory(snapshot, word, startYear, endYear).toTimeSeries();
+    }
 
+    /**
+     * Returns the relative frequencies of WORD in CURRENT between the already
+     * clamped STARTYEAR and ENDYEAR.
+     */
+    private static DenseTimeSeries denseWeightHistory(Snapshot current, String word,
+                                                      int startYear, int endYear) {
+        if (!current.mightContain(word)) {
+            return new DenseTimeSeries();
+        }
+        DenseTimeSeries wordCounts = current.store().denseHistory(word, startYear, endYear);
         if (wordCounts.isEmpty()) {
-            return new TimeSeries();
+            return wordCounts;
         }
-        return wordCounts.dividedBy(totalCountsInRange);
+        return wordCounts.dividedBy(current.denseTotals());
     }
 
-
+    /**
+     * Passes every word with a history, and its relative frequencies between
+     * the already clamped STARTYEAR and ENDYEAR, to ACTION. Words recorded in
+     * a year of the range without a total count are skipped.
+     */
+    void forEachWeightHistory(int startYear, int endYear,
+                              BiConsumer<String, DenseTimeSeries> action) {
+        Snapshot current = snapshot;
+        current.store().forEachWord((word, total) -> {
+            DenseTimeSeries weights;
+            try {
+                weights = denseWeightHistory(current, word, startYear, endYear);
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            action.accept(word, weights);
+        });
+    }
 
     /**
      * Provides a TimeSeries containing the relative frequency per year of WORD compared to all
@@ -145,11 +411,7 @@ public class NGramMap {
      * TimeSeries.
      */
     public TimeSeries weightHistory(String word) {
-        TimeSeries wordCounts = countHistory(word);
-        if (wordCounts.isEmpty()) {
-            return new TimeSeries();
-        }
-        return wordCounts.dividedBy(totalCounts);
+        return weightHistory(word, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
     }
 
     /**
@@ -168,26 +430,86 @@ public class NGramMap {
             return new TimeSeries();
         }
 
-        TimeSeries result = new TimeSeries();
+        Snapshot current = snapshot;
+        return current.store().summedWeights(words, current.denseTotals(), startYear, endYear)
+                .toTimeSeries();
+    }
+
+    /**
+     * Returns the relative frequency of WORD between STARTYEAR and ENDYEAR in
+     * at most MAXPOINTS points where possible. Ranges too long for yearly
+     * points are split into aligned buckets of 5, 10 or 100 years, the finest
+     * that fits, and each bucket in which WORD is recorded gets the mean weight
+     * over its years (unrecorded years count as 0) under its first year in the
+     * range. Buckets are summed from per-word aggregates that are kept for
+     * recently queried words, so long ranges cost about one read per bucket.
+     */
+    public TimeSeries weightHistory(String word, int startYear, int endYear, int maxPoints) {
+        return summedWeightHistory(List.of(word), startYear, endYear, maxPoints);
+    }
+
+    /**
+     * Returns the summed relative frequency of all words in WORDS between
+     * STARTYEAR and ENDYEAR in at most MAXPOINTS points where possible,
+     * bucketed as described in weightHistory(String, int, int, int). Each
+     * bucket holds the sum of the words' bucket means.
+     */
+    public TimeSeries summedWeightHistory(Collection<String> words, int startYear, int endYear,
+                                          int maxPoints) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be positive: " + maxPoints);
+        }
+        startYear = Math.max(TimeSeries.MIN_YEAR, startYear);
+        endYear = Math.min(TimeSeries.MAX_YEAR, endYear);
+        if (startYear > endYear) {
+            return new TimeSeries();
+        }
+        int width = WeightPyramid.widthFor(startYear - TimeSeries.MIN_YEAR,
+                endYear - TimeSeries.MIN_YEAR, maxPoints);
+        if (width == 1) {
+            return summedWeightHistory(words, startYear, endYear);
+        }
+
+        Snapshot current = snapshot;
+        List<String> known = new ArrayList<>(words.size());
         for (String word : words) {
-            TimeSeries wordWeights = weightHistory(word, startYear, endYear);
-            result = result.plus(wordWeights);
+            if (current.mightContain(word)) {
+                known.add(word);
+            }
         }
-        return result;
+        return current.pyramids().downsampled(known, current.denseTotals(), startYear, endYear, width);
     }
 
-
     /**
      * Returns the summed relative frequency per year of all words in WORDS. If a word does not
      * exist in this time frame, ignore it rather than throwing an exception.
      */
     public TimeSeries summedWeightHistory(Collection<String> words) {
-        TimeSeries result = new TimeSeries();
-        for (String word : words) {
-            TimeSeries wordWeights = weightHistory(word);
-            result = result.plus(wordWeights);
-        }
-        return result;
+        return summedWeightHistory(words, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
     }
 
+    /**
+     * A batch of new or corrected counts for apply(). A row for a (word, year)
+     * or a total for a year that the map already has replaces the old value;
+     * everything else is added. Updates are not thread-safe.
+     */
+    public static final class Update {
+        private final ColumnarHistoryStore.Builder rows = new ColumnarHistoryStore.Builder();
+        private final TimeSeries totalCounts = new TimeSeries();
+
+        /** Records COUNT as the number of times WORD appeared in YEAR. */
+        public Update put(String word, int year, double count) {
+            rows.add(word, year, count);
+            return this;
+        }
+
+        /** Records TOTAL as the number of words recorded in YEAR across all volumes. */
+        public Update putTotal(int year, double total) {
+            if (year < TimeSeries.MIN_YEAR || year > TimeSeries.MAX_YEAR) {
+                throw new IllegalArgumentException("Year out of allowed range: " + year);
+            }
+            totalCounts.put(year, total);
+            return this;
+        }
+    }
 }
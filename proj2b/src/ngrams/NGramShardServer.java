@@ -0,0 +1,198 @@
+package ngrams;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves one hash partition of a words file over a loopback socket. Shard i
+ * of n keeps the words whose shardOf(word, n) is i, plus every total count,
+ * and answers the requests sent by ShardedHistoryStore. Each connection gets
+ * its own virtual thread and handles one request at a time.
+ *
+ * Usage: java ngrams.NGramShardServer WORDSFILE COUNTSFILE SHARD SHARDS [PORT]
+ *
+ * Once the shard is loaded it prints "READY port" on standard output.
+ */
+public final class NGramShardServer implements Closeable {
+    /* Request opcodes. Every request is answered before the next one is read. */
+    static final byte CONTAINS = 1;
+    static final byte COUNT_HISTORY = 2;
+    static final byte COUNT_SUM = 3;
+    static final byte SUMMED_WEIGHTS = 4;
+
+    /* Response status bytes. An error is followed by a UTF message. */
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private final NGramMap ngm;
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+
+    private NGramShardServer(NGramMap ngm, int port) throws IOException {
+        this.ngm = ngm;
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        acceptor = Thread.ofPlatform().name("ngram-shard-" + port).daemon().start(this::acceptLoop);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length != 4 && args.length != 5) {
+            System.err.println("Usage: java ngrams.NGramShardServer "
+                    + "<words file> <counts file> <shard> <shards> [port]");
+            System.exit(1);
+        }
+        int port = args.length == 5 ? Integer.parseInt(args[4]) : 0;
+        NGramShardServer server = start(args[0], args[1],
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]), port);
+        System.out.println("READY " + server.port());
+        System.out.flush();
+        server.acceptor.join();
+    }
+
+    /** Returns the shard, in [0, SHARDS), that owns WORD. */
+    static int shardOf(String word, int shards) {
+        return Math.floorMod(word.hashCode(), shards);
+    }
+
+    /**
+     * Loads shard SHARD of SHARDS from WORDSFILENAME and COUNTSFILENAME and
+     * starts serving it on PORT, or on a free port if PORT is 0.
+     */
+    public static NGramShardServer start(String wordsFilename, String countsFilename,
+                                         int shard, int shards, int port) {
+        if (shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("Shard " + shard + " out of range for " + shards);
+        }
+        WordDictionary dictionary = new WordDictionary();
+        ColumnarHistoryStore.Builder builder = new ColumnarHistoryStore.Builder(dictionary);
+        NGramMap.readWords(wordsFilename, new HistoryStore.Builder() {
+            @Override
+            public void add(String word, int year, double count) {
+                if (shardOf(word, shards) == shard) {
+                    builder.add(word, year, count);
+                }
+            }
+
+            @Override
+            public HistoryStore build() {
+                return builder.build();
+            }
+        });
+        NGramMap ngm = new NGramMap(builder.build(), NGramMap.readTotalCounts(countsFilename),
+                dictionary);
+        try {
+            return new NGramShardServer(ngm, port);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open shard socket", e);
+        }
+    }
+
+    /** Returns the port this shard listens on. */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /** Stops accepting connections. Open connections end when their clients close them. */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (SocketException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Shard failed to accept a connection: " + e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                try {
+                    answer(op, in, out);
+                } catch (RuntimeException e) {
+                    out.writeByte(ERROR);
+                    out.writeUTF(String.valueOf(e.getMessage()));
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; nothing to answer.
+        }
+    }
+
+    /** Reads the arguments of request OP from IN and writes its response to OUT. */
+    private void answer(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (op) {
+            case CONTAINS -> {
+                boolean contains = ngm.contains(in.readUTF());
+                out.writeByte(OK);
+                out.writeBoolean(contains);
+            }
+            case COUNT_HISTORY -> {
+                TimeSeries ts = ngm.countHistory(in.readUTF(), in.readInt(), in.readInt());
+                out.writeByte(OK);
+                writeSeries(out, ts);
+            }
+            case COUNT_SUM -> {
+                double sum = ngm.countSum(in.readUTF(), in.readInt(), in.readInt());
+                out.writeByte(OK);
+                out.writeDouble(sum);
+            }
+            case SUMMED_WEIGHTS -> {
+                int n = in.readInt();
+                List<String> words = new ArrayList<>(n);
+                for (int i = 0; i < n; i += 1) {
+                    words.add(in.readUTF());
+                }
+                TimeSeries ts = ngm.summedWeightHistory(words, in.readInt(), in.readInt());
+                out.writeByte(OK);
+                writeSeries(out, ts);
+            }
+            default -> throw new IllegalArgumentException("Unknown shard request " + op);
+        }
+    }
+
+    static void writeSeries(DataOutputStream out, TimeSeries ts) throws IOException {
+        out.writeInt(ts.size());
+        for (Map.Entry<Integer, Double> entry : ts.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeDouble(entry.getValue());
+        }
+    }
+
+    static TimeSeries readSeries(DataInputStream in) throws IOException {
+        TimeSeries ts = new TimeSeries();
+        int n = in.readInt();
+        for (int i = 0; i < n; i += 1) {
+            ts.put(in.readInt(), in.readDouble());
+        }
+        return ts;
+    }
+}
@@ -0,0 +1,115 @@
+package ngrams;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Compiles a words file and a counts file into the binary snapshot format read
+ * by NGramMap(String snapshotFilename). See MappedHistoryStore for the layout.
+ *
+ * Usage: java ngrams.NGramSnapshotCompiler WORDSFILE COUNTSFILE SNAPSHOTFILE
+ */
+public class NGramSnapshotCompiler {
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Usage: java ngrams.NGramSnapshotCompiler "
+                    + "<words file> <counts file> <snapshot file>");
+            System.exit(1);
+        }
+        compile(args[0], args[1], args[2]);
+    }
+
+    /** Parses WORDSFILENAME and COUNTSFILENAME and writes SNAPSHOTFILENAME. */
+    public static void compile(String wordsFilename, String countsFilename,
+                               String snapshotFilename) {
+        ColumnarHistoryStore.Builder builder = new ColumnarHistoryStore.Builder();
+        NGramMap.readWords(wordsFilename, builder);
+        ColumnarHistoryStore store = builder.build();
+        TimeSeries totals = NGramMap.readTotalCounts(countsFilename);
+        try {
+            write(store, totals, snapshotFilename);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write snapshot file", e);
+        }
+    }
+
+    private static void write(ColumnarHistoryStore store, TimeSeries totals,
+                              String snapshotFilename) throws IOException {
+        WordDictionary dictionary = store.dictionary();
+        int n = store.size();
+        Integer[] order = new Integer[n];
+        byte[][] utf8 = new byte[dictionary.size()][];
+        for (int id = 0, i = 0; id < dictionary.size(); id += 1) {
+            if (store.length(id) > 0) {
+                order[i] = id;
+                utf8[id] = dictionary.word(id).getBytes(StandardCharsets.UTF_8);
+                i += 1;
+            }
+        }
+        Arrays.sort(order, Comparator.comparing(i -> utf8[i], Arrays::compareUnsigned));
+
+        long valueCount = 0;
+        long poolBytes = 0;
+        for (int i : order) {
+            valueCount += store.length(i);
+            poolBytes += utf8[i].length;
+        }
+        long headerAndIndex = MappedHistoryStore.HEADER_BYTES + 16L * n + 4;
+        long fileBytes = ((headerAndIndex + 7) & ~7L) + 8 * valueCount
+                + 8L * MappedHistoryStore.YEARS + poolBytes;
+        if (fileBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot would exceed 2 GB: " + fileBytes);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(snapshotFilename), 1 << 16))) {
+            out.writeInt(MappedHistoryStore.MAGIC);
+            out.writeInt(MappedHistoryStore.VERSION);
+            out.writeInt(n);
+            out.writeInt((int) valueCount);
+            out.writeInt((int) poolBytes);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+
+            for (int i : order) {
+                out.writeInt(store.firstYear(i));
+            }
+            int offset = 0;
+            for (int i : order) {
+                out.writeInt(offset);
+                offset += store.length(i);
+            }
+            for (int i : order) {
+                out.writeInt(store.length(i));
+            }
+            int start = 0;
+            for (int i : order) {
+                out.writeInt(start);
+                start += utf8[i].length;
+            }
+            out.writeInt(start);
+            for (int pad = (int) headerAndIndex; pad % 8 != 0; pad += 1) {
+                out.writeByte(0);
+            }
+
+            for (int i : order) {
+                for (int j = 0; j < store.length(i); j += 1) {
+                    out.writeDouble(store.value(i, j));
+                }
+            }
+            for (int year = TimeSeries.MIN_YEAR; year <= TimeSeries.MAX_YEAR; year += 1) {
+                out.writeDouble(totals.getOrDefault(year, Double.NaN));
+            }
+            for (int i : order) {
+                out.write(utf8[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package ngrams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Reads a words file by splitting it into byte ranges that start and end on
+ * line boundaries and parsing the ranges in parallel on a ForkJoinPool. Each
+ * range is memory-mapped and scanned byte by byte: years and counts are
+ * parsed straight from the bytes, and a word String is only created when it
+ * differs from the word on the previous line. Every range fills its own
+ * ColumnarHistoryStore.Builder, and the partial builders are merged in file
+ * order, so the result matches a sequential read line for line.
+ */
+public class ParallelWordsLoader {
+    /** Ranges per worker thread, so that one slow range does not stall the load. */
+    private static final int RANGES_PER_THREAD = 4;
+    private static final int MIN_RANGE_BYTES = 1 << 16;
+
+    private final ForkJoinPool pool;
+
+    /** Creates a loader that runs on the common ForkJoinPool. */
+    public ParallelWordsLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /** Creates a loader that runs on POOL. */
+    public ParallelWordsLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** Feeds every (word, year, count) row of WORDSFILENAME to BUILDER. */
+    void load(String wordsFilename, HistoryStore.Builder builder) {
+        try (FileChannel channel = FileChannel.open(Path.of(wordsFilename),
+                StandardOpenOption.READ)) {
+            long[] bounds = rangeBounds(channel, pool.getParallelism() * RANGES_PER_THREAD);
+            List<ForkJoinTask<ColumnarHistoryStore.Builder>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i += 1) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(pool.submit(() -> parseRange(channel, start, end)));
+            }
+            for (ForkJoinTask<ColumnarHistoryStore.Builder> task : tasks) {
+                task.join().drainTo(builder);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read words file", e);
+        }
+    }
+
+    /**
+     * Splits the file into at most RANGES ranges. Every bound except the first
+     * and last sits just after a newline.
+     */
+    private static long[] rangeBounds(FileChannel channel, int ranges) throws IOException {
+        long size = channel.size();
+        ranges = (int) Math.max(1, Math.min(ranges, size / MIN_RANGE_BYTES));
+        long[] bounds = new long[ranges + 1];
+        bounds[ranges] = size;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < ranges; i += 1) {
+            long pos = Math.max(bounds[i - 1], size * i / ranges);
+            bounds[i] = nextLineStart(channel, pos, size, probe);
+        }
+        return bounds;
+    }
+
+    private static long nextLineStart(FileChannel channel, long pos, long size,
+                                      ByteBuffer probe) throws IOException {
+        while (pos < size) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            for (int i = 0; i < n; i += 1) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static ColumnarHistoryStore.Builder parseRange(FileChannel channel, long start,
+                                                           long end) throws IOException {
+        ColumnarHistoryStore.Builder builder = new ColumnarHistoryStore.Builder();
+        if (start >= end) {
+            return builder;
+        }
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        int limit = buf.limit();
+        int lineStart = 0;
+        int prevWordStart = -1;
+        int prevWordEnd = -1;
+        String word = null;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buf.get(lineEnd) != '\n') {
+                lineEnd += 1;
+            }
+            int next = lineEnd + 1;
+            if (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') {
+                lineEnd -= 1;
+            }
+
+            int tab1 = indexOfTab(buf, lineStart, lineEnd);
+            int tab2 = tab1 < 0 ? -1 : indexOfTab(buf, tab1 + 1, lineEnd);
+            if (tab2 >= 0 && !onlyTabs(buf, tab2 + 1, lineEnd)) {
+                int tab3 = indexOfTab(buf, tab2 + 1, lineEnd);
+                int countEnd = tab3 < 0 ? lineEnd : tab3;
+                if (word == null || !sameBytes(buf, prevWordStart, prevWordEnd, lineStart, tab1)) {
+                    word = decode(buf, lineStart, tab1);
+                }
+                prevWordStart = lineStart;
+                prevWordEnd = tab1;
+                builder.add(word, parseInt(buf, tab1 + 1, tab2),
+                        parseDouble(buf, tab2 + 1, countEnd));
+            }
+            lineStart = next;
+        }
+        return builder;
+    }
+
+    private static int indexOfTab(ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; i += 1) {
+            if (buf.get(i) == '\t') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if FROM to TO holds nothing but tabs. String.split drops
+     * trailing empty fields, so the sequential reader skips a line whose
+     * fields from the count on are all empty; this lets the parser skip it too.
+     */
+    private static boolean onlyTabs(ByteBuffer buf, int from, int to) {
+        for (int i = from; i < to; i += 1) {
+            if (buf.get(i) != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameBytes(ByteBuffer buf, int aStart, int aEnd, int bStart, int bEnd) {
+        if (aEnd - aStart != bEnd - bStart) {
+            return false;
+        }
+        for (int i = 0; i < aEnd - aStart; i += 1) {
+            if (buf.get(aStart + i) != buf.get(bStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuffer buf, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buf.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Parses an optionally signed decimal int, as Integer.parseInt would. */
+    private static int parseInt(ByteBuffer buf, int from, int to) {
+        boolean negative = from < to && buf.get(from) == '-';
+        int i = negative || (from < to && buf.get(from) == '+') ? from + 1 : from;
+        if (i == to || to - i > 9) {
+            return Integer.parseInt(decode(buf, from, to));
+        }
+        int value = 0;
+        for (; i < to; i += 1) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(decode(buf, from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a count. Plain integers of up to 15 digits are exact in a double and
+     * are accumulated directly; anything else goes through Double.parseDouble.
+     */
+    private static double parseDouble(ByteBuffer buf, int from, int to) {
+        if (from == to || to - from > 15) {
+            return Double.parseDouble(decode(buf, from, to));
+        }
+        long value = 0;
+        for (int i = from; i < to; i += 1) {
+            int digit = buf.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Double.parseDouble(decode(buf, from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
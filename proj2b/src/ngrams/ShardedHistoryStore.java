@@ -0,0 +1,223 @@
+package ngrams;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A HistoryStore whose words live in NGramShardServers. Single-word calls go
+ * to the shard that owns the word; summedWeights scatters the words to their
+ * shards in parallel and adds up the partial sums. Each shard keeps a small
+ * pool of open connections, so concurrent queries do not queue behind one
+ * socket.
+ *
+ * The shards divide by their own total counts, so they must have been
+ * started with the same counts file as the coordinating NGramMap.
+ */
+class ShardedHistoryStore implements HistoryStore {
+    private final List<Shard> shards = new ArrayList<>();
+    private final WordDictionary dictionary;
+    private final ExecutorService scatter = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Connects lazily to the shard servers at ADDRESSES, in shard order. */
+    ShardedHistoryStore(List<InetSocketAddress> addresses, WordDictionary dictionary) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        for (InetSocketAddress address : addresses) {
+            shards.add(new Shard(address));
+        }
+        this.dictionary = dictionary;
+    }
+
+    private Shard shardFor(String word) {
+        return shards.get(NGramShardServer.shardOf(word, shards.size()));
+    }
+
+    @Override
+    public boolean contains(String word) {
+        return shardFor(word).call(NGramShardServer.CONTAINS, out -> out.writeUTF(word),
+                DataInputStream::readBoolean);
+    }
+
+    @Override
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        return shardFor(word).call(NGramShardServer.COUNT_HISTORY, out -> {
+            out.writeUTF(word);
+            out.writeInt(startYear);
+            out.writeInt(endYear);
+        }, NGramShardServer::readSeries);
+    }
+
+    @Override
+    public TimeSeries countHistory(String word) {
+        return countHistory(word, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
+    }
+
+    @Override
+    public TimeSeries countHistory(int wordId, int startYear, int endYear) {
+        if (wordId < 0 || wordId >= dictionary.size()) {
+            return new TimeSeries();
+        }
+        return countHistory(dictionary.word(wordId), startYear, endYear);
+    }
+
+    @Override
+    public double countSum(String word, int startYear, int endYear) {
+        return shardFor(word).call(NGramShardServer.COUNT_SUM, out -> {
+            out.writeUTF(word);
+            out.writeInt(startYear);
+            out.writeInt(endYear);
+        }, DataInputStream::readDouble);
+    }
+
+    @Override
+    public double countSum(int wordId, int startYear, int endYear) {
+        if (wordId < 0 || wordId >= dictionary.size()) {
+            return 0;
+        }
+        return countSum(dictionary.word(wordId), startYear, endYear);
+    }
+
+    /** Sends each shard its share of WORDS at once. TOTALS is unused; see the class comment. */
+    @Override
+    public DenseTimeSeries summedWeights(Collection<String> words, DenseTimeSeries totals,
+                                         int startYear, int endYear) {
+        List<List<String>> partitions = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i += 1) {
+            partitions.add(new ArrayList<>());
+        }
+        for (String word : words) {
+            partitions.get(NGramShardServer.shardOf(word, shards.size())).add(word);
+        }
+
+        List<Future<TimeSeries>> partials = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i += 1) {
+            List<String> partition = partitions.get(i);
+            if (partition.isEmpty()) {
+                continue;
+            }
+            Shard shard = shards.get(i);
+            partials.add(scatter.submit(() -> shard.call(NGramShardServer.SUMMED_WEIGHTS, out -> {
+                out.writeInt(partition.size());
+                for (String word : partition) {
+                    out.writeUTF(word);
+                }
+                out.writeInt(startYear);
+                out.writeInt(endYear);
+            }, NGramShardServer::readSeries)));
+        }
+
+        List<DenseTimeSeries> sums = new ArrayList<>(partials.size());
+        for (Future<TimeSeries> partial : partials) {
+            try {
+                sums.add(DenseTimeSeries.of(partial.get()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a shard", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException r ? r : new RuntimeException(e.getCause());
+            }
+        }
+        return DenseTimeSeries.summed(sums);
+    }
+
+    /** The words live in the shards; the coordinator cannot list them. */
+    @Override
+    public void forEachWord(ObjDoubleConsumer<String> action) {
+        throw new UnsupportedOperationException("Sharded NGramMaps cannot enumerate their words");
+    }
+
+    @Override
+    public boolean enumerable() {
+        return false;
+    }
+
+    /** Updates must be ingested by each shard; the coordinator holds no counts. */
+    @Override
+    public HistoryStore merge(ColumnarHistoryStore updates) {
+        throw new UnsupportedOperationException("Sharded NGramMaps are updated shard by shard");
+    }
+
+    private interface RequestWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private interface ResponseReader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    /** The address of one shard server and its idle connections. */
+    private static final class Shard {
+        private final InetSocketAddress address;
+        private final ConcurrentLinkedQueue<Connection> idle = new ConcurrentLinkedQueue<>();
+
+        Shard(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * Sends request OP with the arguments written by REQUEST and returns the
+         * response parsed by RESPONSE. A connection that fails is dropped.
+         */
+        <T> T call(byte op, RequestWriter request, ResponseReader<T> response) {
+            Connection connection = idle.poll();
+            try {
+                if (connection == null) {
+                    connection = new Connection(address);
+                }
+                connection.out.writeByte(op);
+                request.write(connection.out);
+                connection.out.flush();
+                byte status = connection.in.readByte();
+                if (status != NGramShardServer.OK) {
+                    String message = connection.in.readUTF();
+                    idle.add(connection);
+                    throw new IllegalStateException("Shard " + address + " failed: " + message);
+                }
+                T result = response.read(connection.in);
+                idle.add(connection);
+                return result;
+            } catch (IOException e) {
+                if (connection != null) {
+                    connection.close();
+                }
+                throw new RuntimeException("Failed to query shard " + address, e);
+            }
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already broken; nothing more to release.
+            }
+        }
+    }
+}
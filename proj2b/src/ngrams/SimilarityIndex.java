@@ -0,0 +1,451 @@
+package ngrams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the words whose relative frequency over a fixed range of years most
+ * resembles that of other words. Each word's weight history is averaged into
+ * one point per yearsPerPoint years and normalized so that the dot product of
+ * two rows is their Pearson correlation (rows are z-normalized) or their
+ * cosine similarity (rows are scaled to unit length). All rows live in one
+ * contiguous float matrix, so an exact query is a single pass of dot products
+ * over it, split across the common ForkJoinPool for large indexes.
+ *
+ * An index built with approximate lookups also hashes every row into
+ * TABLES tables by the signs of its projections onto random hyperplanes.
+ * approximateSimilar only scores the rows that share a bucket (or a bucket one
+ * bit away) with the query in some table, which finds strongly correlated
+ * words without reading the whole matrix.
+ *
+ * The index is a snapshot: counts merged into the NGramMap later are not seen.
+ */
+public final class SimilarityIndex {
+    /** How two histories are compared. */
+    public enum Metric {
+        /** Pearson correlation of the downsampled weights. */
+        PEARSON,
+        /** Cosine similarity of the downsampled weights. */
+        COSINE
+    }
+
+    /** A word and its similarity to the query, in [-1, 1]. */
+    public record Match(String word, double score) {}
+
+    /** Indexes with at least this many rows are scanned in parallel. */
+    static final int PARALLEL_ROWS = 1 << 14;
+    private static final int BLOCK_ROWS = 1 << 12;
+    /** The number of hash tables of an approximate index. */
+    static final int TABLES = 8;
+
+    private final String[] words;
+    private final float[] matrix;
+    private final int dims;
+    private final Projections projections;
+
+    private SimilarityIndex(String[] words, float[] matrix, int dims, boolean approximate) {
+        this.words = words;
+        this.matrix = matrix;
+        this.dims = dims;
+        projections = approximate ? new Projections(matrix, words.length, dims) : null;
+    }
+
+    /**
+     * Indexes the weight histories of every word of NGM between STARTYEAR and
+     * ENDYEAR, averaged over YEARSPERPOINT years at a time and compared by
+     * METRIC. Builds the hash tables for approximateSimilar if APPROXIMATE.
+     * Words whose downsampled history is flat (or all zero) have no
+     * correlation with anything and are left out, as are words recorded in a
+     * year without a total count. Sharded maps throw an
+     * UnsupportedOperationException.
+     */
+    public static SimilarityIndex build(NGramMap ngm, int startYear, int endYear,
+                                        int yearsPerPoint, Metric metric, boolean approximate) {
+        int from = Math.max(TimeSeries.MIN_YEAR, startYear);
+        int to = Math.min(TimeSeries.MAX_YEAR, endYear);
+        if (from > to || yearsPerPoint < 1) {
+            throw new IllegalArgumentException("Empty year range or bucket size");
+        }
+        int dims = (to - from + yearsPerPoint) / yearsPerPoint;
+
+        List<String> kept = new ArrayList<>();
+        List<float[]> rows = new ArrayList<>();
+        ngm.forEachWeightHistory(from, to, (word, weights) -> {
+            float[] row = normalize(downsample(weights, from, to, yearsPerPoint, dims), metric);
+            if (row != null) {
+                kept.add(word);
+                rows.add(row);
+            }
+        });
+
+        Integer[] order = new Integer[kept.size()];
+        for (int i = 0; i < order.length; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> kept.get(a).compareTo(kept.get(b)));
+        String[] words = new String[order.length];
+        float[] matrix = new float[order.length * dims];
+        for (int i = 0; i < order.length; i += 1) {
+            words[i] = kept.get(order[i]);
+            System.arraycopy(rows.get(order[i]), 0, matrix, i * dims, dims);
+        }
+        return new SimilarityIndex(words, matrix, dims, approximate);
+    }
+
+    private static double[] downsample(DenseTimeSeries weights, int from, int to,
+                                       int yearsPerPoint, int dims) {
+        double[] point = new double[dims];
+        for (int p = 0; p < dims; p += 1) {
+            int first = from + p * yearsPerPoint;
+            int last = Math.min(to, first + yearsPerPoint - 1);
+            double sum = 0;
+            for (int year = first; year <= last; year += 1) {
+                sum += weights.valueAt(year - TimeSeries.MIN_YEAR);
+            }
+            point[p] = sum / (last - first + 1);
+        }
+        return point;
+    }
+
+    /** Returns POINT scaled so that dot products give METRIC, or null if it cannot be. */
+    private static float[] normalize(double[] point, Metric metric) {
+        int dims = point.length;
+        double center = 0;
+        if (metric == Metric.PEARSON) {
+            for (double x : point) {
+                center += x;
+            }
+            center /= dims;
+        }
+        double squares = 0;
+        for (double x : point) {
+            squares += (x - center) * (x - center);
+        }
+        if (!(squares > 0) || Double.isInfinite(squares)) {
+            return null;
+        }
+        double scale = 1 / Math.sqrt(squares);
+        float[] row = new float[dims];
+        for (int i = 0; i < dims; i += 1) {
+            row[i] = (float) ((point[i] - center) * scale);
+        }
+        return row;
+    }
+
+    /** Returns the number of indexed words. */
+    public int size() {
+        return words.length;
+    }
+
+    /** Returns the number of points each history was downsampled to. */
+    public int dimensions() {
+        return dims;
+    }
+
+    /**
+     * Returns the K indexed words most similar to the combined history of
+     * WORDS, best first, leaving out WORDS themselves. Ties are broken
+     * alphabetically. Returns an empty list if none of WORDS is indexed.
+     */
+    public List<Match> similar(Collection<String> words, int k) {
+        Query query = query(words);
+        if (query == null || k <= 0) {
+            return new ArrayList<>();
+        }
+        TopK best;
+        if (this.words.length >= PARALLEL_ROWS) {
+            int blocks = (this.words.length + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            best = IntStream.range(0, blocks).parallel()
+                    .mapToObj(b -> scan(query, k, b * BLOCK_ROWS,
+                            Math.min(this.words.length, (b + 1) * BLOCK_ROWS)))
+                    .reduce(TopK::merge)
+                    .orElseGet(() -> new TopK(k));
+        } else {
+            best = scan(query, k, 0, this.words.length);
+        }
+        return best.matches(this.words);
+    }
+
+    /**
+     * Same as similar, but only scores the rows that the hash tables put near
+     * the query, so strongly correlated words are found quickly while weak
+     * matches may be missed. Falls back to the exact scan if fewer than K
+     * candidates turn up. Throws an IllegalStateException if the index was
+     * built without approximate lookups.
+     */
+    public List<Match> approximateSimilar(Collection<String> words, int k) {
+        if (projections == null) {
+            throw new IllegalStateException("Index was built without approximate lookups");
+        }
+        Query query = query(words);
+        if (query == null || k <= 0) {
+            return new ArrayList<>();
+        }
+        BitSet candidates = projections.candidates(query.vector);
+        TopK best = new TopK(k);
+        int found = 0;
+        for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+            if (!query.excludes(row)) {
+                best.offer(row, dot(query.vector, row));
+                found += 1;
+            }
+        }
+        if (found < k) {
+            return similar(words, k);
+        }
+        return best.matches(this.words);
+    }
+
+    /** The normalized query vector and the sorted rows of the query words. */
+    private record Query(float[] vector, int[] excluded) {
+        boolean excludes(int row) {
+            return Arrays.binarySearch(excluded, row) >= 0;
+        }
+    }
+
+    private Query query(Collection<String> queryWords) {
+        double[] sum = new double[dims];
+        BitSet seen = new BitSet();
+        for (String word : queryWords) {
+            int row = Arrays.binarySearch(words, word);
+            if (row < 0 || seen.get(row)) {
+                continue;
+            }
+            seen.set(row);
+            for (int j = 0; j < dims; j += 1) {
+                sum[j] += matrix[row * dims + j];
+            }
+        }
+        if (seen.isEmpty()) {
+            return null;
+        }
+        /* The rows are already centered for PEARSON, so their sum only needs rescaling. */
+        float[] vector = normalize(sum, Metric.COSINE);
+        return vector == null ? null : new Query(vector, seen.stream().toArray());
+    }
+
+    /** Scores rows FROM to TO, only looking up the query words for scores that would be kept. */
+    private TopK scan(Query query, int k, int from, int to) {
+        TopK best = new TopK(k);
+        for (int row = from; row < to; row += 1) {
+            float score = dot(query.vector, row);
+            if (best.accepts(row, score) && !query.excludes(row)) {
+                best.offer(row, score);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the dot product of Q and ROW. Four independent sums let the
+     * multiplies of consecutive dimensions overlap.
+     */
+    private float dot(float[] q, int row) {
+        int base = row * dims;
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int j = 0;
+        for (; j + 3 < dims; j += 4) {
+            s0 += q[j] * matrix[base + j];
+            s1 += q[j + 1] * matrix[base + j + 1];
+            s2 += q[j + 2] * matrix[base + j + 2];
+            s3 += q[j + 3] * matrix[base + j + 3];
+        }
+        for (; j < dims; j += 1) {
+            s0 += q[j] * matrix[base + j];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * The best K rows seen so far, kept in a min-heap whose root is the
+     * weakest: the lowest score, or the later row among equal scores.
+     */
+    private static final class TopK {
+        private final int[] rows;
+        private final float[] scores;
+        private int size;
+
+        TopK(int k) {
+            rows = new int[k];
+            scores = new float[k];
+        }
+
+        /** Returns true if ROW with SCORE would be kept by offer. */
+        boolean accepts(int row, float score) {
+            return size < rows.length || weaker(0, row, score);
+        }
+
+        void offer(int row, float score) {
+            if (size < rows.length) {
+                rows[size] = row;
+                scores[size] = score;
+                size += 1;
+                siftUp(size - 1);
+            } else if (weaker(0, row, score)) {
+                rows[0] = row;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        TopK merge(TopK other) {
+            for (int i = 0; i < other.size; i += 1) {
+                offer(other.rows[i], other.scores[i]);
+            }
+            return this;
+        }
+
+        /** Returns true if heap entry I ranks below ROW with SCORE. */
+        private boolean weaker(int i, int row, float score) {
+            return scores[i] < score || (scores[i] == score && rows[i] > row);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!weaker(i, rows[parent], scores[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int weakest = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child += 1) {
+                    if (weaker(child, rows[weakest], scores[weakest])) {
+                        weakest = child;
+                    }
+                }
+                if (weakest == i) {
+                    return;
+                }
+                swap(i, weakest);
+                i = weakest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int row = rows[a];
+            rows[a] = rows[b];
+            rows[b] = row;
+            float score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+
+        /** Returns the entries best first as Matches over WORDS. */
+        List<Match> matches(String[] words) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i += 1) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> weaker(a, rows[b], scores[b]) ? 1
+                    : weaker(b, rows[a], scores[a]) ? -1 : 0);
+            List<Match> result = new ArrayList<>(size);
+            for (int i : order) {
+                /* Rounding can carry a float score just past 1. */
+                double score = Math.max(-1, Math.min(1, scores[i]));
+                result.add(new Match(words[rows[i]], score));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * TABLES hash tables over the rows of a matrix. The key of a row in a table
+     * holds one bit per random hyperplane: whether the row lies on its positive
+     * side. Each table is the row numbers sorted by key, so a bucket is the
+     * run of rows with one key.
+     */
+    private static final class Projections {
+        private final int dims;
+        private final int bits;
+        /* planes[((t * bits) + b) * dims + j] is dimension j of plane b of table t. */
+        private final float[] planes;
+        private final int[][] keys;
+        private final int[][] rows;
+
+        Projections(float[] matrix, int n, int dims) {
+            this.dims = dims;
+            /* About 16 rows per bucket, so probes stay cheap as the index grows. */
+            bits = Math.max(1, Math.min(20, 31 - Integer.numberOfLeadingZeros(Math.max(1, n / 16))));
+            Random random = new Random(61);
+            planes = new float[TABLES * bits * dims];
+            for (int i = 0; i < planes.length; i += 1) {
+                planes[i] = (float) random.nextGaussian();
+            }
+            keys = new int[TABLES][n];
+            rows = new int[TABLES][n];
+            for (int t = 0; t < TABLES; t += 1) {
+                long[] packed = new long[n];
+                for (int row = 0; row < n; row += 1) {
+                    packed[row] = (long) key(matrix, row * dims, t) << 32 | row;
+                }
+                Arrays.sort(packed);
+                for (int i = 0; i < n; i += 1) {
+                    keys[t][i] = (int) (packed[i] >>> 32);
+                    rows[t][i] = (int) packed[i];
+                }
+            }
+        }
+
+        private int key(float[] vector, int offset, int table) {
+            int key = 0;
+            for (int b = 0; b < bits; b += 1) {
+                int plane = (table * bits + b) * dims;
+                float side = 0;
+                for (int j = 0; j < dims; j += 1) {
+                    side += planes[plane + j] * vector[offset + j];
+                }
+                if (side > 0) {
+                    key |= 1 << b;
+                }
+            }
+            return key;
+        }
+
+        /**
+         * Returns the distinct rows that share a bucket with QUERY, or sit in a
+         * bucket whose key differs from the query's in one bit, in any table.
+         */
+        BitSet candidates(float[] query) {
+            BitSet found = new BitSet(rows[0].length);
+            for (int t = 0; t < TABLES; t += 1) {
+                int key = key(query, 0, t);
+                collect(t, key, found);
+                for (int b = 0; b < bits; b += 1) {
+                    collect(t, key ^ (1 << b), found);
+                }
+            }
+            return found;
+        }
+
+        private void collect(int table, int key, BitSet found) {
+            int[] tableKeys = keys[table];
+            int lo = 0;
+            int hi = tableKeys.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (tableKeys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            for (int i = lo; i < tableKeys.length && tableKeys[i] == key; i += 1) {
+                found.set(rows[table][i]);
+            }
+        }
+    }
+}
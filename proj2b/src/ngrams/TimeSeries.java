@@ -21,9 +21,6 @@ public class TimeSeries extends TreeMap<Integer, Double> {
     public static final int MIN_YEAR = 1400;
     public static final int MAX_YEAR = 2100;
 
-    private TimeSeries sourceTs;
-    private int startYear;
-    private int endYear;
     /**
      * Constructs a new empty TimeSeries.
      */
@@ -35,11 +32,6 @@ public class TimeSeries extends TreeMap<Integer, Double> {
      * Creates a copy of TS, but only between STARTYEAR and ENDYEAR,
      * inclusive of both end points.
      */
-
-
-
-
-
     public TimeSeries(TimeSeries ts, int startYear, int endYear) {
         super();
         if (startYear > endYear) {
@@ -48,24 +40,21 @@ public class TimeSeries extends TreeMap<Integer, Double> {
         if (startYear < MIN_YEAR || endYear > MAX_YEAR) {
             throw new IllegalArgumentException("Year out of allowed range");
         }
-        this.sourceTs = ts;
-        this.startYear = startYear;
-        this.endYear = endYear;
-
-        for (Map.Entry<Integer, Double> entry : ts.entrySet()) {
-            int year = entry.getKey();
-            if (year >= startYear && year <= endYear) {
-                this.put(year, entry.getValue());
-            }
-        }
-
+        putAll(ts.subMap(startYear, true, endYear, true));
     }
 
+    /** Creates a copy of TS. */
     public TimeSeries(TimeSeries ts) {
-        super();
-        for (Map.Entry<Integer, Double> entry : ts.entrySet()) {
-            this.put(entry.getKey(), entry.getValue());
-        }
+        super(ts);
+    }
+
+    /**
+     * Returns a read-only view of the years of TS between STARTYEAR and
+     * ENDYEAR, inclusive, that copies them only if it is modified. TS must
+     * not change while the view is in use.
+     */
+    static TimeSeries view(TimeSeries ts, int startYear, int endYear) {
+        return new TimeSeriesView(ts, startYear, endYear);
     }
 
     /**
@@ -0,0 +1,533 @@
+package ngrams;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A TimeSeries that shows the years [startYear, endYear] of another
+ * TimeSeries without copying them. Reads go straight to the source. The
+ * first call to a mutating Map method copies the range into this object's
+ * own tree; from then on it behaves like a plain TimeSeries, so callers
+ * still get the usual defensive-copy semantics.
+ *
+ * keySet(), values() and entrySet() read through to the source too, and
+ * their removals, iterator removals and Entry.setValue copy the range first.
+ * Sub-maps, descending maps and navigable key sets copy the range as soon as
+ * they are asked for, since they can be written to directly.
+ *
+ * The source must not change while views of it are alive.
+ */
+final class TimeSeriesView extends TimeSeries {
+    private static final long serialVersionUID = 1L;
+
+    /*
+     * The visible range of the source, or null once copied into this tree.
+     * Never serialized: writeReplace writes a plain TimeSeries instead.
+     */
+    private transient NavigableMap<Integer, Double> view;
+
+    /** Shows the years of SOURCE between STARTYEAR and ENDYEAR, inclusive. */
+    TimeSeriesView(TimeSeries source, int startYear, int endYear) {
+        super();
+        view = Collections.unmodifiableNavigableMap(source.subMap(startYear, true, endYear, true));
+    }
+
+    /** Copies the viewed years into this tree, if that has not happened yet. */
+    private void materialize() {
+        if (view != null) {
+            NavigableMap<Integer, Double> range = view;
+            view = null;
+            super.putAll(range);
+        }
+    }
+
+    /* Reads. */
+
+    @Override
+    public int size() {
+        return view != null ? view.size() : super.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return view != null ? view.containsKey(key) : super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return view != null ? view.containsValue(value) : super.containsValue(value);
+    }
+
+    @Override
+    public Double get(Object key) {
+        return view != null ? view.get(key) : super.get(key);
+    }
+
+    @Override
+    public Comparator<? super Integer> comparator() {
+        return null;
+    }
+
+    @Override
+    public Integer firstKey() {
+        return view != null ? view.firstKey() : super.firstKey();
+    }
+
+    @Override
+    public Integer lastKey() {
+        return view != null ? view.lastKey() : super.lastKey();
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> firstEntry() {
+        return view != null ? view.firstEntry() : super.firstEntry();
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> lastEntry() {
+        return view != null ? view.lastEntry() : super.lastEntry();
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> lowerEntry(Integer key) {
+        return view != null ? view.lowerEntry(key) : super.lowerEntry(key);
+    }
+
+    @Override
+    public Integer lowerKey(Integer key) {
+        return view != null ? view.lowerKey(key) : super.lowerKey(key);
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> floorEntry(Integer key) {
+        return view != null ? view.floorEntry(key) : super.floorEntry(key);
+    }
+
+    @Override
+    public Integer floorKey(Integer key) {
+        return view != null ? view.floorKey(key) : super.floorKey(key);
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> ceilingEntry(Integer key) {
+        return view != null ? view.ceilingEntry(key) : super.ceilingEntry(key);
+    }
+
+    @Override
+    public Integer ceilingKey(Integer key) {
+        return view != null ? view.ceilingKey(key) : super.ceilingKey(key);
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> higherEntry(Integer key) {
+        return view != null ? view.higherEntry(key) : super.higherEntry(key);
+    }
+
+    @Override
+    public Integer higherKey(Integer key) {
+        return view != null ? view.higherKey(key) : super.higherKey(key);
+    }
+
+    @Override
+    public Set<Integer> keySet() {
+        return view != null ? new KeySet() : super.keySet();
+    }
+
+    @Override
+    public Collection<Double> values() {
+        return view != null ? new Values() : super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, Double>> entrySet() {
+        return view != null ? new EntrySet() : super.entrySet();
+    }
+
+    /* Writable views of the map copy the range first. */
+
+    @Override
+    public NavigableSet<Integer> navigableKeySet() {
+        materialize();
+        return super.navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<Integer> descendingKeySet() {
+        materialize();
+        return super.descendingKeySet();
+    }
+
+    @Override
+    public NavigableMap<Integer, Double> descendingMap() {
+        materialize();
+        return super.descendingMap();
+    }
+
+    @Override
+    public NavigableMap<Integer, Double> subMap(Integer fromKey, boolean fromInclusive,
+                                               Integer toKey, boolean toInclusive) {
+        materialize();
+        return super.subMap(fromKey, fromInclusive, toKey, toInclusive);
+    }
+
+    @Override
+    public NavigableMap<Integer, Double> headMap(Integer toKey, boolean inclusive) {
+        materialize();
+        return super.headMap(toKey, inclusive);
+    }
+
+    @Override
+    public NavigableMap<Integer, Double> tailMap(Integer fromKey, boolean inclusive) {
+        materialize();
+        return super.tailMap(fromKey, inclusive);
+    }
+
+    @Override
+    public SortedMap<Integer, Double> subMap(Integer fromKey, Integer toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<Integer, Double> headMap(Integer toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<Integer, Double> tailMap(Integer fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Integer, ? super Double> action) {
+        if (view != null) {
+            view.forEach(action);
+        } else {
+            super.forEach(action);
+        }
+    }
+
+    /* Writes copy the range first. */
+
+    @Override
+    public Double put(Integer key, Double value) {
+        materialize();
+        return super.put(key, value);
+    }
+
+    @Override
+    public Double putFirst(Integer key, Double value) {
+        materialize();
+        return super.putFirst(key, value);
+    }
+
+    @Override
+    public Double putLast(Integer key, Double value) {
+        materialize();
+        return super.putLast(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends Integer, ? extends Double> map) {
+        materialize();
+        super.putAll(map);
+    }
+
+    @Override
+    public Double putIfAbsent(Integer key, Double value) {
+        materialize();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public Double computeIfAbsent(Integer key, Function<? super Integer, ? extends Double> f) {
+        materialize();
+        return super.computeIfAbsent(key, f);
+    }
+
+    @Override
+    public Double computeIfPresent(Integer key,
+                                   BiFunction<? super Integer, ? super Double, ? extends Double> f) {
+        materialize();
+        return super.computeIfPresent(key, f);
+    }
+
+    @Override
+    public Double compute(Integer key,
+                          BiFunction<? super Integer, ? super Double, ? extends Double> f) {
+        materialize();
+        return super.compute(key, f);
+    }
+
+    @Override
+    public Double merge(Integer key, Double value,
+                        BiFunction<? super Double, ? super Double, ? extends Double> f) {
+        materialize();
+        return super.merge(key, value, f);
+    }
+
+    @Override
+    public Double remove(Object key) {
+        materialize();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        view = null;
+        super.clear();
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> pollFirstEntry() {
+        materialize();
+        return super.pollFirstEntry();
+    }
+
+    @Override
+    public Map.Entry<Integer, Double> pollLastEntry() {
+        materialize();
+        return super.pollLastEntry();
+    }
+
+    @Override
+    public boolean replace(Integer key, Double oldValue, Double newValue) {
+        materialize();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Double replace(Integer key, Double value) {
+        materialize();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super Integer, ? super Double, ? extends Double> f) {
+        materialize();
+        super.replaceAll(f);
+    }
+
+    /** Returns an independent TimeSeries with the same contents. */
+    @Override
+    public Object clone() {
+        return new TimeSeries(this);
+    }
+
+    /* The source is not part of this object's serialized form, so write a copy instead. */
+    private Object writeReplace() {
+        return new TimeSeries(this);
+    }
+
+    /*
+     * Collections handed out before the range is copied. They read through
+     * to the view, or to this tree once it has been copied, and every write
+     * goes through this map's own copy-on-write methods.
+     */
+
+    /** Iterates over the current contents, removing through this map. */
+    private Iterator<Map.Entry<Integer, Double>> entryIterator() {
+        if (view == null) {
+            return super.entrySet().iterator();
+        }
+        Iterator<Map.Entry<Integer, Double>> entries = view.entrySet().iterator();
+        return new Iterator<>() {
+            private Integer last;
+
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Integer, Double> next() {
+                Map.Entry<Integer, Double> entry = entries.next();
+                last = entry.getKey();
+                return new WritableEntry(last, entry.getValue());
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                TimeSeriesView.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /** An entry of the view whose setValue writes to this map. */
+    private final class WritableEntry implements Map.Entry<Integer, Double> {
+        private final Integer year;
+        private Double value;
+
+        WritableEntry(Integer year, Double value) {
+            this.year = year;
+            this.value = value;
+        }
+
+        @Override
+        public Integer getKey() {
+            return year;
+        }
+
+        @Override
+        public Double getValue() {
+            return value;
+        }
+
+        @Override
+        public Double setValue(Double newValue) {
+            put(year, newValue);
+            Double old = value;
+            value = newValue;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e
+                    && year.equals(e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return year.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return year + "=" + value;
+        }
+    }
+
+    private final class KeySet extends AbstractSet<Integer> {
+        @Override
+        public int size() {
+            return TimeSeriesView.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!containsKey(o)) {
+                return false;
+            }
+            TimeSeriesView.this.remove(o);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            TimeSeriesView.this.clear();
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            Iterator<Map.Entry<Integer, Double>> entries = entryIterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public Integer next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+    }
+
+    private final class Values extends AbstractCollection<Double> {
+        @Override
+        public int size() {
+            return TimeSeriesView.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return containsValue(o);
+        }
+
+        @Override
+        public void clear() {
+            TimeSeriesView.this.clear();
+        }
+
+        @Override
+        public Iterator<Double> iterator() {
+            Iterator<Map.Entry<Integer, Double>> entries = entryIterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public Double next() {
+                    return entries.next().getValue();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<Integer, Double>> {
+        @Override
+        public int size() {
+            return TimeSeriesView.this.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Map.Entry<?, ?> e && containsKey(e.getKey())
+                    && Objects.equals(get(e.getKey()), e.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            TimeSeriesView.this.remove(((Map.Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            TimeSeriesView.this.clear();
+        }
+
+        @Override
+        public Iterator<Map.Entry<Integer, Double>> iterator() {
+            return entryIterator();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ngrams;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * The original NGramMap layout: one TimeSeries (a TreeMap of boxed years and
+ * counts) per word. Histories are handed out as copy-on-write views, so the
+ * stored TimeSeries must never be modified after build().
+ */
+class TreeMapHistoryStore implements HistoryStore {
+    private final Map<String, TimeSeries> wordMap;
+    private final WordDictionary dictionary;
+
+    private TreeMapHistoryStore(Map<String, TimeSeries> wordMap, WordDictionary dictionary) {
+        this.wordMap = wordMap;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public boolean contains(String word) {
+        return wordMap.containsKey(word);
+    }
+
+    @Override
+    public TimeSeries countHistory(String word, int startYear, int endYear) {
+        TimeSeries ts = wordMap.get(word);
+        if (ts == null) {
+            return new TimeSeries();
+        }
+        return TimeSeries.view(ts, startYear, endYear);
+    }
+
+    @Override
+    public TimeSeries countHistory(String word) {
+        TimeSeries ts = wordMap.get(word);
+        if (ts == null) {
+            return new TimeSeries();
+        }
+        return TimeSeries.view(ts, ts.firstKey(), ts.lastKey());
+    }
+
+    @Override
+    public TimeSeries countHistory(int wordId, int startYear, int endYear) {
+        if (wordId < 0 || wordId >= dictionary.size()) {
+            return new TimeSeries();
+        }
+        return countHistory(dictionary.word(wordId), startYear, endYear);
+    }
+
+    @Override
+    public void forEachWord(ObjDoubleConsumer<String> action) {
+        for (Map.Entry<String, TimeSeries> entry : wordMap.entrySet()) {
+            double total = 0;
+            for (double count : entry.getValue().values()) {
+                total += count;
+            }
+            action.accept(entry.getKey(), total);
+        }
+    }
+
+    /** Copies the word map and rebuilds only the histories of the updated words. */
+    @Override
+    public TreeMapHistoryStore merge(ColumnarHistoryStore updates) {
+        Map<String, TimeSeries> merged = new HashMap<>(wordMap);
+        for (String word : updates.words()) {
+            TimeSeries ts = merged.get(word);
+            ts = ts == null ? new TimeSeries() : new TimeSeries(ts);
+            ts.putAll(updates.countHistory(word));
+            merged.put(dictionary.word(dictionary.intern(word)), ts);
+        }
+        return new TreeMapHistoryStore(merged, dictionary);
+    }
+
+    static class Builder implements HistoryStore.Builder {
+        private final Map<String, TimeSeries> wordMap = new HashMap<>();
+        private final WordDictionary dictionary;
+
+        Builder(WordDictionary dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        @Override
+        public void add(String word, int year, double count) {
+            TimeSeries ts = wordMap.get(word);
+            if (ts == null) {
+                word = dictionary.word(dictionary.intern(word));
+                ts = new TimeSeries();
+                wordMap.put(word, ts);
+            }
+            ts.put(year, count);
+        }
+
+        @Override
+        public HistoryStore build() {
+            return new TreeMapHistoryStore(wordMap, dictionary);
+        }
+    }
+}
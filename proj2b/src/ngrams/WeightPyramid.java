@@ -0,0 +1,245 @@
+package ngrams;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The relative frequencies of one word summed over aligned blocks of 1, 5,
+ * 10 and 100 years. A range of years is answered from the coarsest blocks
+ * that fit inside it, with finer blocks only at its ragged ends, so summing
+ * a century costs one read instead of a hundred.
+ *
+ * Downsampled histories split the range into buckets of one width, aligned
+ * to multiples of it, and give each bucket that has at least one recorded
+ * year the mean weight over the bucket's years with a total count, treating
+ * unrecorded years as 0. A bucket is reported under its first year within the
+ * range. With a width of 1 this is exactly weightHistory.
+ */
+final class WeightPyramid {
+    /** Block widths in years, finest first. Each divides the next and MIN_YEAR. */
+    static final int[] WIDTHS = {1, 5, 10, 100};
+
+    private static final WeightPyramid EMPTY =
+            new WeightPyramid(new double[0][], new int[0], 0, new int[0]);
+
+    /*
+     * sums[l][b] is the weight summed over block base[l] + b of width
+     * WIDTHS[l], or NaN if no year of the block is recorded.
+     */
+    private final double[][] sums;
+    private final int[] base;
+    private final int values;
+    /* Year indexes (year - MIN_YEAR) with a count but no total count, in ascending order. */
+    private final int[] unweighted;
+
+    private WeightPyramid(double[][] sums, int[] base, int values, int[] unweighted) {
+        this.sums = sums;
+        this.base = base;
+        this.values = values;
+        this.unweighted = unweighted;
+    }
+
+    /** Builds the pyramid of the word with COUNTS, weighting each year by TOTALS. */
+    static WeightPyramid of(DenseTimeSeries counts, DenseTimeSeries totals) {
+        int first = DenseTimeSeries.YEARS;
+        int last = -1;
+        int missing = 0;
+        for (int i = 0; i < DenseTimeSeries.YEARS; i += 1) {
+            if (counts.isPresent(i)) {
+                first = Math.min(first, i);
+                last = i;
+                if (!totals.isPresent(i)) {
+                    missing += 1;
+                }
+            }
+        }
+        if (last < 0) {
+            return EMPTY;
+        }
+
+        int[] unweighted = new int[missing];
+        double[][] sums = new double[WIDTHS.length][];
+        int[] base = new int[WIDTHS.length];
+        int values = 0;
+        for (int l = 0; l < WIDTHS.length; l += 1) {
+            base[l] = first / WIDTHS[l];
+            sums[l] = new double[last / WIDTHS[l] - base[l] + 1];
+            Arrays.fill(sums[l], Double.NaN);
+            values += sums[l].length;
+        }
+        int u = 0;
+        for (int i = first; i <= last; i += 1) {
+            if (!counts.isPresent(i)) {
+                continue;
+            }
+            if (!totals.isPresent(i)) {
+                unweighted[u] = i;
+                u += 1;
+                continue;
+            }
+            double weight = counts.valueAt(i) / totals.valueAt(i);
+            for (int l = 0; l < WIDTHS.length; l += 1) {
+                int b = i / WIDTHS[l] - base[l];
+                sums[l][b] = Double.isNaN(sums[l][b]) ? weight : sums[l][b] + weight;
+            }
+        }
+        return new WeightPyramid(sums, base, values, unweighted);
+    }
+
+    /** Returns the number of sums held, across all levels. */
+    int values() {
+        return values;
+    }
+
+    /**
+     * Returns the weight summed over year indexes FROM to TO, inclusive, or
+     * NaN if no year in them is recorded. Throws an IllegalArgumentException
+     * if a recorded year in them has no total count.
+     */
+    double sum(int from, int to) {
+        for (int i : unweighted) {
+            if (i >= from && i <= to) {
+                throw new IllegalArgumentException("Missing year in ts: " + (TimeSeries.MIN_YEAR + i));
+            }
+        }
+        return sum(from, to, WIDTHS.length - 1);
+    }
+
+    private double sum(int from, int to, int level) {
+        if (from > to || sums.length == 0) {
+            return Double.NaN;
+        }
+        if (level == 0) {
+            return blocks(0, from, to + 1);
+        }
+        int width = WIDTHS[level];
+        /* The whole blocks inside [from, to] are [lo, hi). */
+        int lo = (from + width - 1) / width;
+        int hi = (to + 1) / width;
+        if (lo >= hi) {
+            return sum(from, to, level - 1);
+        }
+        return plus(plus(sum(from, lo * width - 1, level - 1), blocks(level, lo, hi)),
+                sum(hi * width, to, level - 1));
+    }
+
+    /** Returns the sum of blocks [LO, HI) of LEVEL, skipping those outside the word's span. */
+    private double blocks(int level, int lo, int hi) {
+        double[] levelSums = sums[level];
+        double total = Double.NaN;
+        int end = Math.min(hi, base[level] + levelSums.length);
+        for (int b = Math.max(lo, base[level]); b < end; b += 1) {
+            total = plus(total, levelSums[b - base[level]]);
+        }
+        return total;
+    }
+
+    /** Adds two sums where NaN means nothing recorded. */
+    private static double plus(double a, double b) {
+        if (Double.isNaN(a)) {
+            return b;
+        }
+        return Double.isNaN(b) ? a : a + b;
+    }
+
+    /**
+     * Returns the finest width whose buckets over year indexes FROM to TO
+     * number at most MAXPOINTS, or the coarsest width there is if none fits.
+     */
+    static int widthFor(int from, int to, int maxPoints) {
+        for (int width : WIDTHS) {
+            if (to / width - from / width + 1 <= maxPoints) {
+                return width;
+            }
+        }
+        return WIDTHS[WIDTHS.length - 1];
+    }
+
+    /**
+     * Remembers the pyramids of recently queried words of one store and
+     * downsamples from them. The least recently used pyramids are evicted once
+     * the cached sums exceed the budget. Two threads that miss on the same
+     * word both build its pyramid. Safe for use by several threads.
+     */
+    static final class Cache {
+        /** Bounds the sums held by one cache, about 32 MB. Each entry counts one extra. */
+        static final long MAX_VALUES = 1 << 22;
+
+        private final HistoryStore store;
+        private final LinkedHashMap<String, WeightPyramid> pyramids = new LinkedHashMap<>(16, 0.75f, true);
+        private long values;
+
+        Cache(HistoryStore store) {
+            this.store = store;
+        }
+
+        /** Returns the pyramid of WORD, weighting by TOTALS, building it if needed. */
+        WeightPyramid get(String word, DenseTimeSeries totals) {
+            synchronized (this) {
+                WeightPyramid pyramid = pyramids.get(word);
+                if (pyramid != null) {
+                    return pyramid;
+                }
+            }
+            DenseTimeSeries counts =
+                    store.denseHistory(word, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR);
+            WeightPyramid pyramid = of(counts, totals);
+            put(word, pyramid);
+            return pyramid;
+        }
+
+        private synchronized void put(String word, WeightPyramid pyramid) {
+            WeightPyramid old = pyramids.put(word, pyramid);
+            if (old != null) {
+                values -= old.values + 1;
+            }
+            values += pyramid.values + 1;
+            Iterator<Map.Entry<String, WeightPyramid>> iter = pyramids.entrySet().iterator();
+            while (values > MAX_VALUES && iter.hasNext()) {
+                values -= iter.next().getValue().values + 1;
+                iter.remove();
+            }
+        }
+
+        /**
+         * Returns the summed weights of WORDS between the already clamped
+         * STARTYEAR and ENDYEAR in buckets of WIDTH years, as described above.
+         */
+        TimeSeries downsampled(Collection<String> words, DenseTimeSeries totals,
+                               int startYear, int endYear, int width) {
+            int from = startYear - TimeSeries.MIN_YEAR;
+            int to = endYear - TimeSeries.MIN_YEAR;
+            int buckets = to / width - from / width + 1;
+            double[] sum = new double[buckets];
+            Arrays.fill(sum, Double.NaN);
+            for (String word : words) {
+                WeightPyramid pyramid = get(word, totals);
+                for (int b = 0; b < buckets; b += 1) {
+                    int lo = Math.max(from, (from / width + b) * width);
+                    int hi = Math.min(to, (from / width + b + 1) * width - 1);
+                    sum[b] = plus(sum[b], pyramid.sum(lo, hi));
+                }
+            }
+
+            TimeSeries ts = new TimeSeries();
+            for (int b = 0; b < buckets; b += 1) {
+                if (Double.isNaN(sum[b])) {
+                    continue;
+                }
+                int lo = Math.max(from, (from / width + b) * width);
+                int hi = Math.min(to, (from / width + b + 1) * width - 1);
+                int years = 0;
+                for (int i = lo; i <= hi; i += 1) {
+                    if (totals.isPresent(i)) {
+                        years += 1;
+                    }
+                }
+                ts.put(TimeSeries.MIN_YEAR + lo, sum[b] / years);
+            }
+            return ts;
+        }
+    }
+}
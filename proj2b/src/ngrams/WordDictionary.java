@@ -0,0 +1,53 @@
+package ngrams;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns every distinct word a dense int ID, starting from 0. A WordNet and
+ * an NGramMap built with the same dictionary agree on word IDs, so code that
+ * holds an ID from one can look it up in the other without hashing the word
+ * again.
+ *
+ * Lookups may run concurrently with interning; interning is serialized.
+ */
+public class WordDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] words = new String[1024];
+    private volatile int size;
+
+    /** Returns the ID of WORD, or -1 if it has never been interned. */
+    public int idOf(String word) {
+        Integer id = ids.get(word);
+        return id == null ? -1 : id;
+    }
+
+    /** Returns the ID of WORD, assigning the next free ID if it is new. */
+    public synchronized int intern(String word) {
+        Integer id = ids.get(word);
+        if (id != null) {
+            return id;
+        }
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+        }
+        words[size] = word;
+        ids.put(word, size);
+        size += 1;
+        return size - 1;
+    }
+
+    /** Returns the word with the given ID. */
+    public String word(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown word ID: " + id);
+        }
+        return words[id];
+    }
+
+    /** Returns the number of words interned so far. */
+    public int size() {
+        return size;
+    }
+}
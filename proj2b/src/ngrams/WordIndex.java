@@ -0,0 +1,207 @@
+package ngrams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Every word of a HistoryStore in sorted order with its total count over all
+ * years, for prefix queries, plus a BloomFilter that rejects most unknown
+ * words before the store is asked.
+ *
+ * The words sharing a prefix form one contiguous run of the sorted array (the
+ * subtree a trie would keep for that prefix), found with two binary searches.
+ * A max-count segment tree over the array then yields the run's words best
+ * first, one O(log n) range query per word returned, however many words the
+ * run holds.
+ */
+final class WordIndex {
+    /** The false positive rate the Bloom filter is sized for. */
+    static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final String[] words;
+    private final double[] counts;
+    /* tree[n + i] = i; tree[j] = whichever of tree[2j], tree[2j + 1] ranks first. */
+    private final int[] tree;
+    private final BloomFilter filter;
+
+    /** Indexes WORDS, whose total counts are COUNTS in the same order. */
+    WordIndex(String[] words, double[] counts) {
+        int n = words.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i += 1) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> words[a].compareTo(words[b]));
+        this.words = new String[n];
+        this.counts = new double[n];
+        filter = new BloomFilter(n, FALSE_POSITIVE_RATE);
+        for (int i = 0; i < n; i += 1) {
+            this.words[i] = words[order[i]];
+            this.counts[i] = counts[order[i]];
+            filter.add(this.words[i]);
+        }
+
+        tree = new int[2 * Math.max(n, 1)];
+        for (int i = 0; i < n; i += 1) {
+            tree[n + i] = i;
+        }
+        for (int j = n - 1; j > 0; j -= 1) {
+            tree[j] = better(tree[2 * j], tree[2 * j + 1]);
+        }
+    }
+
+    /** Indexes every word of STORE. */
+    static WordIndex of(HistoryStore store) {
+        Rows rows = new Rows();
+        store.forEachWord(rows::add);
+        return new WordIndex(Arrays.copyOf(rows.words, rows.size), Arrays.copyOf(rows.counts, rows.size));
+    }
+
+    /** Returns false if WORD is certainly not indexed. */
+    boolean mightContain(String word) {
+        return filter.mightContain(word);
+    }
+
+    /** Returns the number of indexed words. */
+    int size() {
+        return words.length;
+    }
+
+    /**
+     * Returns up to K indexed words that start with PREFIX, by descending
+     * total count and alphabetically among equal counts.
+     */
+    List<String> complete(String prefix, int k) {
+        int lo = firstAtLeast(prefix);
+        int hi = firstPast(prefix, lo);
+        if (lo >= hi || k <= 0) {
+            return new ArrayList<>();
+        }
+        List<String> result = new ArrayList<>(Math.min(k, hi - lo));
+
+        /* Each entry {lo, hi, best} is a run of words whose best is not yet returned. */
+        PriorityQueue<int[]> runs = new PriorityQueue<>(
+                (a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1);
+        runs.add(new int[]{lo, hi, best(lo, hi)});
+        while (result.size() < k && !runs.isEmpty()) {
+            int[] run = runs.poll();
+            int top = run[2];
+            result.add(words[top]);
+            if (run[0] < top) {
+                runs.add(new int[]{run[0], top, best(run[0], top)});
+            }
+            if (top + 1 < run[1]) {
+                runs.add(new int[]{top + 1, run[1], best(top + 1, run[1])});
+            }
+        }
+        return result;
+    }
+
+    /** Returns the index of the first word not less than PREFIX. */
+    private int firstAtLeast(String prefix) {
+        int lo = 0;
+        int hi = words.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (words[mid].compareTo(prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Returns the index of the first word at or after FROM that does not start with PREFIX. */
+    private int firstPast(String prefix, int from) {
+        int lo = from;
+        int hi = words.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (words[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Returns the index in [LO, HI) of the word that ranks first. */
+    private int best(int lo, int hi) {
+        int n = words.length;
+        int result = -1;
+        for (lo += n, hi += n; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                result = result < 0 ? tree[lo] : better(result, tree[lo]);
+                lo += 1;
+            }
+            if ((hi & 1) == 1) {
+                hi -= 1;
+                result = result < 0 ? tree[hi] : better(result, tree[hi]);
+            }
+        }
+        return result;
+    }
+
+    /** Returns whichever of word indices A and B has the higher count, or the earlier one on a tie. */
+    private int better(int a, int b) {
+        int cmp = Double.compare(counts[a], counts[b]);
+        if (cmp != 0) {
+            return cmp > 0 ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    /**
+     * Builds the WordIndex of a store the first time it is asked for, so maps
+     * that never need one pay nothing. Stores that cannot list their words get
+     * none.
+     */
+    static final class Lazy {
+        private final HistoryStore store;
+        private volatile WordIndex index;
+
+        Lazy(HistoryStore store) {
+            this.store = store;
+        }
+
+        /** Returns the index of the store, or null if the store is not enumerable. */
+        WordIndex get() {
+            WordIndex result = index;
+            if (result == null && store.enumerable()) {
+                synchronized (this) {
+                    if (index == null) {
+                        index = WordIndex.of(store);
+                    }
+                    result = index;
+                }
+            }
+            return result;
+        }
+
+        /** Returns the index of the store if get() has built it, or null without building it. */
+        WordIndex peek() {
+            return index;
+        }
+    }
+
+    /** Collects the words and counts of a store as forEachWord hands them out. */
+    private static final class Rows {
+        private String[] words = new String[1024];
+        private double[] counts = new double[1024];
+        private int size;
+
+        void add(String word, double count) {
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            words[size] = word;
+            counts[size] = count;
+            size += 1;
+        }
+    }
+}
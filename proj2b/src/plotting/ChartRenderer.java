@@ -0,0 +1,107 @@
+package plotting;
+
+import browser.QueryStage;
+import org.knowm.xchart.XYChart;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Renders time series charts to Base64 PNG strings and remembers the
+ * finished images, so repeated history queries skip rasterization entirely.
+ * The least recently used images are evicted once the cached strings exceed
+ * the character budget.
+ *
+ * Two identical queries that miss at the same time are both rendered.
+ */
+public final class ChartRenderer {
+    /**
+     * Identifies a chart: its series in legend order, the year range, whether
+     * counts were normalized, the most points per series it was downsampled
+     * to, and the version of the data it was drawn from.
+     */
+    public record Key(List<String> words, int startYear, int endYear, boolean normalized,
+                      int maxPoints, long version) {
+        public Key {
+            words = List.copyOf(words);
+        }
+    }
+
+    /** A snapshot of the cache counters. */
+    public record Stats(long hits, long misses, long evictions, int entries, long chars) {
+        /** Returns hits / (hits + misses), or 0 if there were no lookups. */
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private final long maxChars;
+    private final LinkedHashMap<Key, String> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long chars;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Caches up to MAXCHARS characters of encoded images. */
+    public ChartRenderer(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Returns the image for KEY, building and rasterizing the chart from
+     * CHART only if it is not cached.
+     */
+    public String render(Key key, Supplier<XYChart> chart) {
+        String image = lookup(key);
+        if (image == null) {
+            XYChart built = chart.get();
+            long start = System.nanoTime();
+            image = PngEncoder.encode(built);
+            QueryStage.RENDER.record(start);
+            store(key, image);
+        }
+        return image;
+    }
+
+    private synchronized String lookup(Key key) {
+        String image = images.get(key);
+        if (image == null) {
+            misses += 1;
+        } else {
+            hits += 1;
+        }
+        return image;
+    }
+
+    private synchronized void store(Key key, String image) {
+        if (image.length() > maxChars) {
+            return;
+        }
+        String old = images.put(key, image);
+        if (old != null) {
+            chars -= old.length();
+        }
+        chars += image.length();
+        Iterator<Map.Entry<Key, String>> iter = images.entrySet().iterator();
+        while (chars > maxChars && iter.hasNext()) {
+            chars -= iter.next().getValue().length();
+            iter.remove();
+            evictions += 1;
+        }
+    }
+
+    /** Drops every cached image, e.g. after the underlying counts change. */
+    public synchronized void clear() {
+        images.clear();
+        chars = 0;
+    }
+
+    /** Returns the current counters. */
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, images.size(), chars);
+    }
+}
@@ -1,15 +1,9 @@
 package plotting;
 
 import ngrams.TimeSeries;
-import org.knowm.xchart.BitmapEncoder;
 import org.knowm.xchart.SwingWrapper;
 import org.knowm.xchart.XYChart;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.Base64;
 import java.util.List;
 
 import java.util.ArrayList;
@@ -54,16 +48,6 @@ public class Plotter {
     }
 
     public static String encodeChartAsString(XYChart chart) {
-        BufferedImage img = BitmapEncoder.getBufferedImage(chart);
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-
-        try {
-            ImageIO.write(img, "png", os);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-
-        String encodedImage = Base64.getEncoder().encodeToString(os.toByteArray());
-        return encodedImage;
+        return PngEncoder.encode(chart);
     }
 }
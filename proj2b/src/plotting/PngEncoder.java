@@ -0,0 +1,77 @@
+package plotting;
+
+import org.knowm.xchart.XYChart;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Rasterizes charts to Base64 PNG strings. Each thread keeps its own image,
+ * output buffer and PNG writer, so steady-state rendering only allocates the
+ * returned string. Encoding goes through a memory-backed image stream instead
+ * of ImageIO.write, which would otherwise spill into a temporary file.
+ */
+final class PngEncoder {
+    private static final ThreadLocal<Canvas> CANVAS = ThreadLocal.withInitial(Canvas::new);
+
+    private PngEncoder() {
+    }
+
+    /** Returns CHART as a Base64-encoded PNG. */
+    static String encode(XYChart chart) {
+        return CANVAS.get().encode(chart);
+    }
+
+    /** ByteArrayOutputStream whose buffer can be read without copying. */
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(64 << 10);
+        }
+
+        ByteBuffer contents() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    private static final class Canvas {
+        private final Buffer png = new Buffer();
+        private final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        private BufferedImage image;
+
+        String encode(XYChart chart) {
+            int width = chart.getWidth();
+            int height = chart.getHeight();
+            if (image == null || image.getWidth() != width || image.getHeight() != height) {
+                image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            /* XChart fills the whole background first, so the old frame needs no clearing. */
+            Graphics2D g = image.createGraphics();
+            try {
+                chart.paint(g, width, height);
+            } finally {
+                g.dispose();
+            }
+
+            png.reset();
+            try (ImageOutputStream out = new MemoryCacheImageOutputStream(png)) {
+                writer.setOutput(out);
+                writer.write(image);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to encode chart", e);
+            } finally {
+                writer.reset();
+            }
+            ByteBuffer base64 = Base64.getEncoder().encode(png.contents());
+            return new String(base64.array(), 0, base64.limit(), StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -21,6 +21,7 @@ $(function() {
     const hypohist_server = host + '/hypohist';
 //    const hypohisttext_server = host + '/hypohisttext';
     const commonancestors_server = host + '/ancestors';
+    const autocomplete_server = host + '/autocomplete';
 
     var ngordnetQueryType = "HYPONYMS";
     function get_params() {
@@ -39,6 +40,30 @@ $(function() {
     $('#hypohist').click(hypohistButton);
 //    $('#hypohisttext').click(hypohistTextButton);
     $('#commonancestors').click(commonAncestorsButton);
+    $('#words').on('input', suggestWords);
+
+    /* Offers completions of the last comma-separated word as it is typed. */
+    function suggestWords() {
+        var typed = document.getElementById('words').value;
+        var comma = typed.lastIndexOf(',');
+        var stem = typed.substring(0, comma + 1);
+        var prefix = typed.substring(comma + 1).trim();
+        if (prefix.length === 0) {
+            $('#suggestions').empty();
+            return;
+        }
+        $.get({
+            url: autocomplete_server,
+            data: {words: prefix, k: 8},
+            success: function(words) {
+                var list = $('#suggestions').empty();
+                for (var i = 0; i < words.length; i += 1) {
+                    list.append($('<option>').attr('value', stem + (stem ? ' ' : '') + words[i]));
+                }
+            },
+            dataType: 'json'
+        });
+    }
 
     function historyButton() {
         $("#textresult").hide();
@@ -151,7 +176,7 @@ $(function() {
         console.log(params);
         $.get({
             async: false,
-            url: hyponyms_server,
+            url: commonancestors_server,
             data: params,
             success: function(data) {
                 console.log(data)
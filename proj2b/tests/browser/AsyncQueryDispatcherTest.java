@@ -0,0 +1,143 @@
+package browser;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class AsyncQueryDispatcherTest {
+    private Server server;
+    private int port;
+
+    /** Answers with the query's words once RELEASE is counted down. */
+    private static class BlockingHandler extends NgordnetQueryHandler {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String handle(NgordnetQuery q) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return q.words().toString();
+        }
+    }
+
+    /** Stands in for Spark: answers every request it is passed with its method. */
+    private static class Fallback extends AbstractHandler {
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+            baseRequest.setHandled(true);
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.getOutputStream().write(("fallback " + request.getMethod())
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /** A status code and body. */
+    private record Reply(int status, String body) {}
+
+    private AsyncQueryDispatcher start(int workers, int maxQueued, long timeoutMillis,
+                                       NgordnetQueryHandler nqh) throws Exception {
+        AsyncQueryDispatcher dispatcher = new AsyncQueryDispatcher(workers, maxQueued, timeoutMillis);
+        dispatcher.register("query", nqh);
+        dispatcher.setHandler(new Fallback());
+        server = new Server(0);
+        server.setHandler(dispatcher);
+        server.start();
+        port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+        return dispatcher;
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private Reply request(String method, String pathAndQuery) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection)
+                URI.create("http://localhost:" + port + pathAndQuery).toURL().openConnection();
+        conn.setRequestMethod(method);
+        int status = conn.getResponseCode();
+        try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+            return new Reply(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private CompletableFuture<Reply> requestAsync(String pathAndQuery) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return request("GET", pathAndQuery);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testAnswersQueriesAndPassesOthersThrough() throws Exception {
+        BlockingHandler nqh = new BlockingHandler();
+        nqh.release.countDown();
+        start(2, 4, 10_000, nqh);
+
+        assertThat(request("GET", "/query?words=cat,dog")).isEqualTo(new Reply(200, "\"[cat, dog]\""));
+        assertThat(request("GET", "/query?startYear=1900")).isEqualTo(new Reply(400, "Malformed query"));
+        assertThat(request("POST", "/query?words=cat")).isEqualTo(new Reply(200, "fallback POST"));
+        assertThat(request("GET", "/other?words=cat")).isEqualTo(new Reply(200, "fallback GET"));
+    }
+
+    @Test
+    public void testShedsWhenQueueIsFull() throws Exception {
+        BlockingHandler nqh = new BlockingHandler();
+        AsyncQueryDispatcher dispatcher = start(1, 1, 10_000, nqh);
+
+        CompletableFuture<Reply> running = requestAsync("/query?words=first");
+        waitFor(() -> dispatcher.running() == 1);
+        CompletableFuture<Reply> queued = requestAsync("/query?words=second");
+        waitFor(() -> dispatcher.queued() == 1);
+
+        assertThat(request("GET", "/query?words=third")).isEqualTo(new Reply(503, "Server busy"));
+        nqh.release.countDown();
+        assertThat(running.get(10, TimeUnit.SECONDS)).isEqualTo(new Reply(200, "\"[first]\""));
+        assertThat(queued.get(10, TimeUnit.SECONDS)).isEqualTo(new Reply(200, "\"[second]\""));
+    }
+
+    @Test
+    public void testTimesOutSlowQueries() throws Exception {
+        BlockingHandler nqh = new BlockingHandler();
+        start(1, 1, 200, nqh);
+
+        assertThat(request("GET", "/query?words=slow")).isEqualTo(new Reply(503, "Query timed out"));
+        nqh.release.countDown();
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Timed out waiting for the dispatcher");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package browser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import spark.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class BatchQueryRouteTest {
+    private Service http;
+    private ExecutorService executor;
+
+    /** Answers with the query's words, fails on "boom", and waits for RELEASE on "slow". */
+    private static class TestHandler extends NgordnetQueryHandler {
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String handle(NgordnetQuery q) {
+            if (q.words().contains("boom")) {
+                throw new IllegalStateException("internal detail");
+            }
+            if (q.words().contains("slow")) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return q.words().toString();
+        }
+    }
+
+    /** A status code and body. */
+    private record Reply(int status, String body) {}
+
+    private void start(NgordnetQueryHandler nqh, int workers, int maxQueued) {
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued));
+        http = Service.ignite().port(0);
+        http.post("/batch", new BatchQueryRoute(nqh, executor));
+        http.awaitInitialization();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (http != null) {
+            http.stop();
+            http.awaitStop();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private Reply post(String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection)
+                URI.create("http://localhost:" + http.port() + "/batch").toURL().openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        try (OutputStream out = conn.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int status = conn.getResponseCode();
+        try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+            return new Reply(status, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /** Returns the lines of BODY in index order, since answers stream back as they finish. */
+    private static String[] sortedLines(String body) {
+        String[] lines = body.split("\n");
+        Arrays.sort(lines);
+        return lines;
+    }
+
+    @Test
+    public void testStreamsResultsAndPerItemErrors() throws IOException {
+        TestHandler nqh = new TestHandler();
+        nqh.release.countDown();
+        start(nqh, 2, 16);
+
+        Reply reply = post("[{\"words\": [\"cat\", \" dog\"]}, {\"words\": [\"boom\"]}, null,"
+                + " {\"words\": [\"cat\", null]}, {\"words\": [\"dog\", \"cat \"]}]");
+        assertThat(reply.status()).isEqualTo(200);
+        assertThat(sortedLines(reply.body())).asList().containsExactly(
+                "{\"index\":0,\"result\":\"[cat, dog]\"}",
+                "{\"index\":1,\"error\":\"Query failed\"}",
+                "{\"index\":2,\"error\":\"Not a query\"}",
+                "{\"index\":3,\"error\":\"Not a query\"}",
+                "{\"index\":4,\"result\":\"[dog, cat]\"}").inOrder();
+
+        assertThat(post("{\"words\": [\"cat\"]}").status()).isEqualTo(400);
+    }
+
+    @Test
+    public void testRejectsBatchesThatDoNotFit() throws IOException {
+        TestHandler nqh = new TestHandler();
+        start(nqh, 1, 1);
+
+        Reply reply = post("[{\"words\": [\"slow\", \"a\"]}, {\"words\": [\"slow\", \"b\"]},"
+                + " {\"words\": [\"slow\", \"c\"]}]");
+        assertThat(reply).isEqualTo(new Reply(503, "Server busy"));
+
+        nqh.release.countDown();
+        reply = post("[{\"words\": [\"slow\", \"d\"]}]");
+        assertThat(reply).isEqualTo(new Reply(200, "{\"index\":0,\"result\":\"[slow, d]\"}\n"));
+    }
+}
@@ -0,0 +1,58 @@
+package browser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class CachingQueryHandlerTest {
+
+    /** Answers with the query's words and counts how often it ran. */
+    private static class CountingHandler extends NgordnetQueryHandler {
+        int calls;
+
+        @Override
+        public String handle(NgordnetQuery q) {
+            calls += 1;
+            return q.words().toString();
+        }
+    }
+
+    @Test
+    public void testNormalizedQueriesHit() {
+        CountingHandler counting = new CountingHandler();
+        CachingQueryHandler cached = new CachingQueryHandler(counting, 1 << 20, 60_000);
+
+        byte[] first = cached.handleAsJson(new NgordnetQuery(List.of("food", " cake"), 1900, 2000, 5));
+        byte[] second = cached.handleAsJson(new NgordnetQuery(List.of("cake ", "food"), 1900, 2000, 5));
+        cached.handleAsJson(new NgordnetQuery(List.of("cake", "food"), 1900, 2000, 6));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(new String(first)).isEqualTo("\"[cake, food]\"");
+        assertThat(counting.calls).isEqualTo(2);
+        assertThat(cached.stats().hits()).isEqualTo(1);
+        assertThat(cached.stats().misses()).isEqualTo(2);
+        assertThat(cached.stats().hitRate()).isWithin(1e-9).of(1.0 / 3);
+    }
+
+    @Test
+    public void testExpiryAndEviction() {
+        CountingHandler counting = new CountingHandler();
+        CachingQueryHandler expiring = new CachingQueryHandler(counting, 1 << 20, 0);
+        NgordnetQuery q = new NgordnetQuery(List.of("dog"), 1900, 2000, 0);
+        expiring.handleAsJson(q);
+        expiring.handleAsJson(q);
+        assertThat(counting.calls).isEqualTo(2);
+        assertThat(expiring.stats().expirations()).isEqualTo(1);
+
+        // Each response is 9 bytes ("[word1]" in quotes), so only two fit.
+        CachingQueryHandler small = new CachingQueryHandler(new CountingHandler(), 20, 60_000);
+        for (String word : List.of("word1", "word2", "word3")) {
+            small.handleAsJson(new NgordnetQuery(List.of(word), 1900, 2000, 0));
+        }
+        assertThat(small.stats().entries()).isEqualTo(2);
+        assertThat(small.stats().evictions()).isEqualTo(1);
+        assertThat(small.stats().bytes()).isEqualTo(18);
+    }
+}
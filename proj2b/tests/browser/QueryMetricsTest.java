@@ -0,0 +1,86 @@
+package browser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryMetricsTest {
+
+    @Test
+    public void testHistogramQuantiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertThat(h.quantile(0.5)).isEqualTo(0);
+        for (long v = 1; v <= 100_000; v += 1) {
+            h.record(v * 1000);
+        }
+        assertThat(h.count()).isEqualTo(100_000);
+        assertThat((double) h.quantile(0.5)).isWithin(0.04 * 50_000_000).of(50_000_000);
+        assertThat((double) h.quantile(0.99)).isWithin(0.04 * 99_000_000).of(99_000_000);
+        assertThat((double) h.quantile(0.999)).isWithin(0.04 * 99_900_000).of(99_900_000);
+        assertThat(h.quantile(1.0)).isAtLeast(100_000_000);
+    }
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        for (long v : new long[]{0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, 1L << 40}) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            assertThat(LatencyHistogram.highestValueIn(bucket)).isAtLeast(v);
+            if (bucket > 0) {
+                assertThat(LatencyHistogram.highestValueIn(bucket - 1)).isLessThan(v);
+            }
+        }
+        assertThat(LatencyHistogram.bucketOf(Long.MAX_VALUE))
+                .isEqualTo(LatencyHistogram.bucketOf(1L << 50));
+    }
+
+    @Test
+    public void testHandlerRecordsQueriesAndStages() {
+        QueryMetrics metrics = new QueryMetrics();
+        QueryMetrics.Route route = metrics.route("hyponyms");
+        NgordnetQueryHandler handler = new InstrumentedQueryHandler(new NgordnetQueryHandler() {
+            @Override
+            public String handle(NgordnetQuery q) {
+                QueryStage.WORDNET.record(System.nanoTime());
+                if (q.words().contains("bad")) {
+                    throw new IllegalArgumentException("bad word");
+                }
+                return q.words().toString();
+            }
+        }, route);
+
+        handler.handleAsJson(new NgordnetQuery(List.of("dog"), 1900, 2000, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.handleAsJson(new NgordnetQuery(List.of("bad"), 1900, 2000, 0)));
+
+        assertThat(route.count()).isEqualTo(2);
+        assertThat(route.errors()).isEqualTo(1);
+        assertThat(route.inFlight()).isEqualTo(0);
+        assertThat(route.stageCount(QueryStage.WORDNET)).isEqualTo(2);
+        assertThat(route.stageCount(QueryStage.SERIALIZE)).isEqualTo(1);
+
+        // Outside a measured query the stage timers do nothing.
+        QueryStage.WORDNET.record(System.nanoTime());
+        assertThat(route.stageCount(QueryStage.WORDNET)).isEqualTo(2);
+    }
+
+    @Test
+    public void testScrapeFormat() {
+        QueryMetrics metrics = new QueryMetrics();
+        QueryMetrics.Route history = metrics.route("/history");
+        history.started();
+        history.finished(2_000_000, 512, false);
+        metrics.setLoadGauges(() -> 3, () -> 1);
+
+        String text = metrics.scrape();
+        assertThat(text).contains("# TYPE ngordnet_request_duration_seconds summary\n");
+        assertThat(text).contains("ngordnet_request_duration_seconds{route=\"/history\",quantile=\"0.99\"} ");
+        assertThat(text).contains("ngordnet_request_duration_seconds_count{route=\"/history\"} 1\n");
+        assertThat(text).contains("ngordnet_request_errors_total{route=\"/history\"} 0\n");
+        assertThat(text).contains("ngordnet_queries_queued 3\n");
+        assertThat(text).contains("ngordnet_queries_running 1\n");
+        assertThat(metrics.route("history")).isSameInstanceAs(metrics.route("/history"));
+    }
+}
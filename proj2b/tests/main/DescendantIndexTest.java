@@ -0,0 +1,72 @@
+package main;
+
+import edu.princeton.cs.algs4.In;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class DescendantIndexTest {
+    private static final String SUBGRAPH_HYPONYMS = "data/wordnet/hyponyms1000-subgraph.txt";
+    private static final String FULL_HYPONYMS = "data/wordnet/hyponyms.txt";
+
+    @Test
+    public void testSubgraphMatchesGraphHelper() {
+        checkAgainstGraphHelper(SUBGRAPH_HYPONYMS);
+    }
+
+    @Test
+    public void testFullGraphMatchesGraphHelper() {
+        checkAgainstGraphHelper(FULL_HYPONYMS);
+    }
+
+    @Test
+    public void testIsHyponym() {
+        WordNet wn = new WordNet("data/wordnet/synsets16.txt", "data/wordnet/hyponyms16.txt");
+        assertThat(wn.isHyponym("jump", "change")).isTrue();
+        assertThat(wn.isHyponym("jump", "occurrence")).isTrue();
+        assertThat(wn.isHyponym("change", "change")).isTrue();
+        assertThat(wn.isHyponym("change", "jump")).isFalse();
+        assertThat(wn.isHyponym("notaword", "change")).isFalse();
+    }
+
+    /** Checks the labels of every node against a full traversal from that node. */
+    private static void checkAgainstGraphHelper(String hyponymsFile) {
+        Map<Integer, Set<Integer>> graph = new HashMap<>();
+        IntAdjacency.Builder builder = new IntAdjacency.Builder();
+        int nodes = 0;
+        In in = new In(hyponymsFile);
+        while (in.hasNextLine()) {
+            String[] parts = in.readLine().split(",");
+            int source = Integer.parseInt(parts[0]);
+            nodes = Math.max(nodes, source + 1);
+            for (int i = 1; i < parts.length; i++) {
+                int target = Integer.parseInt(parts[i]);
+                graph.computeIfAbsent(source, k -> new HashSet<>()).add(target);
+                builder.add(source, target);
+                nodes = Math.max(nodes, target + 1);
+            }
+        }
+        DescendantIndex index = new DescendantIndex(builder.build(nodes), nodes);
+
+        int[] out = new int[nodes];
+        for (int v = 0; v < nodes; v += 1) {
+            Set<Integer> expected = GraphHelper.descendants(graph, Set.of(v));
+            int count = index.descendants(v, out, 0);
+            Set<Integer> actual = new HashSet<>();
+            for (int i = 0; i < count; i += 1) {
+                actual.add(out[i]);
+            }
+            assertThat(actual).isEqualTo(expected);
+            assertThat(index.descendantCount(v)).isEqualTo(expected.size());
+            for (int u : expected) {
+                assertThat(index.isDescendant(u, v)).isTrue();
+            }
+            for (int u = v % 97; u < nodes; u += 997) {
+                assertThat(index.isDescendant(u, v)).isEqualTo(expected.contains(u));
+            }
+        }
+        assertThat(index.isDescendant(0, -1)).isFalse();
+    }
+}
@@ -0,0 +1,46 @@
+package main;
+
+import browser.NgordnetQuery;
+import ngrams.NGramMap;
+import org.junit.jupiter.api.Test;
+import plotting.ChartRenderer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryHandlerTest {
+
+    @Test
+    public void testChartCacheSeesUpdatedCounts() {
+        NGramMap ngm = new NGramMap("data/ngrams/very_short.csv", "data/ngrams/total_counts.csv");
+        ChartRenderer renderer = new ChartRenderer(32 << 20);
+        HistoryHandler handler = new HistoryHandler(ngm, renderer, false);
+        NgordnetQuery q = new NgordnetQuery(List.of("airport", "request"), 2005, 2008, 0);
+
+        String before = handler.handle(q);
+        assertEquals(before, handler.handle(q));
+        assertEquals(1, renderer.stats().hits());
+
+        ngm.apply(new NGramMap.Update().put("airport", 2005, 5e6));
+        assertNotEquals(before, handler.handle(q));
+        assertEquals(1, renderer.stats().hits());
+        assertEquals(2, renderer.stats().misses());
+    }
+
+    @Test
+    public void testSharedRendererKeepsPointBudgetsApart() {
+        NGramMap ngm = new NGramMap("data/ngrams/words_that_start_with_q.csv",
+                "data/ngrams/total_counts.csv");
+        ChartRenderer renderer = new ChartRenderer(32 << 20);
+        HistoryHandler fine = new HistoryHandler(ngm, renderer, true, Integer.MAX_VALUE);
+        HistoryHandler coarse = new HistoryHandler(ngm, renderer, true, 5);
+        NgordnetQuery q = new NgordnetQuery(List.of("quantity"), 1800, 2000, 0);
+
+        String detailed = fine.handle(q);
+        assertNotEquals(detailed, coarse.handle(q));
+        assertEquals(0, renderer.stats().hits());
+        assertEquals(detailed, fine.handle(q));
+        assertEquals(1, renderer.stats().hits());
+    }
+}
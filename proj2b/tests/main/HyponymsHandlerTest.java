@@ -0,0 +1,58 @@
+package main;
+
+import browser.CachingQueryHandler;
+import browser.NgordnetQuery;
+import browser.NgordnetQueryHandler;
+import ngrams.NGramMap;
+import ngrams.WordDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyponymsHandlerTest {
+    private static final NgordnetQueryHandler HANDLER = AutograderBuddy.getHyponymsHandler(
+            "data/ngrams/frequency-EECS.csv", "data/ngrams/total_counts.csv",
+            "data/wordnet/synsets-EECS.txt", "data/wordnet/hyponyms-EECS.txt");
+
+    private static String topK(int k) {
+        return HANDLER.handle(new NgordnetQuery(List.of("CS61A"), 2010, 2020, k));
+    }
+
+    @Test
+    public void testNegativeKRanksEveryHyponym() {
+        String all = topK(1000);
+        assertTrue(all.split(",").length > 3);
+        assertEquals(all, topK(-1));
+        assertEquals(all, topK(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void testHugeKRanksEveryHyponym() {
+        String all = topK(1000);
+        assertEquals(all, topK(Integer.MAX_VALUE));
+        String[] best = all.substring(1, all.length() - 1).split(", ");
+        assertEquals("[" + best[0] + ", " + best[1] + "]", topK(2));
+    }
+
+    @Test
+    public void testCacheSeesUpdatedCounts() {
+        WordDictionary dictionary = new WordDictionary();
+        WordNet wn = new WordNet("data/wordnet/synsets-EECS.txt", "data/wordnet/hyponyms-EECS.txt",
+                dictionary);
+        NGramMap ngm = new NGramMap("data/ngrams/frequency-EECS.csv", "data/ngrams/total_counts.csv",
+                NGramMap.StorageMode.COLUMNAR, dictionary);
+        CachingQueryHandler cached = new CachingQueryHandler(new HyponymsHandler(wn, ngm),
+                1 << 20, 60_000, ngm::version);
+        NgordnetQuery top = new NgordnetQuery(List.of("CS61A"), 2010, 2020, 1);
+
+        assertEquals("\"[CS61B]\"", new String(cached.handleAsJson(top)));
+        assertEquals("\"[CS61B]\"", new String(cached.handleAsJson(top)));
+        assertEquals(1, cached.stats().hits());
+
+        ngm.apply(new NGramMap.Update().put("bee", 2015, 1e12));
+        assertEquals("\"[bee]\"", new String(cached.handleAsJson(top)));
+        assertEquals(1, cached.stats().hits());
+    }
+}
@@ -1,7 +1,13 @@
 package main;
 
+import ngrams.NGramMap;
+import ngrams.WordDictionary;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,4 +38,162 @@ class WordNetTest {
 
         assertEquals(expected, actual);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSharedDictionaryIds() {
+        WordDictionary dictionary = new WordDictionary();
+        WordNet wn = new WordNet("data/wordnet/synsets16.txt", "data/wordnet/hyponyms16.txt",
+                dictionary);
+        NGramMap ngm = new NGramMap("data/ngrams/very_short.csv", "data/ngrams/total_counts.csv",
+                NGramMap.StorageMode.COLUMNAR, dictionary);
+
+        int[] ids = wn.hyponymIds(Set.of("change", "occurrence"));
+        assertEquals(8, ids.length);
+        assertEquals(wn.hyponyms(Set.of("change", "occurrence")).size(), ids.length);
+
+        int request = dictionary.idOf("request");
+        assertEquals(ngm.countHistory("request", 2000, 2010), ngm.countHistory(request, 2000, 2010));
+        assertEquals(-1, dictionary.idOf("notaword"));
+    }
+
+    @Test
+    public void testDescendantCacheHits() {
+        WordNet wn = new WordNet("data/wordnet/synsets1000-subgraph.txt",
+                "data/wordnet/hyponyms1000-subgraph.txt");
+
+        Set<String> first = wn.hyponyms("entity");
+        assertEquals(0, wn.cacheStats().hits());
+        assertEquals(1, wn.cacheStats().misses());
+
+        Set<String> second = wn.hyponyms("entity");
+        assertEquals(first, second);
+        assertEquals(1, wn.cacheStats().hits());
+        assertEquals(1, wn.cacheStats().entries());
+
+        // Leaf synsets are too small to be worth caching.
+        wn.hyponyms("ABO_antibodies");
+        assertEquals(1, wn.cacheStats().misses());
+    }
+
+    @Test
+    public void testSnapshotMatchesText(@TempDir Path dir) {
+        String snapshot = dir.resolve("subgraph.wordnet").toString();
+        WordNetSnapshotCompiler.compile("data/wordnet/synsets1000-subgraph.txt",
+                "data/wordnet/hyponyms1000-subgraph.txt", snapshot);
+        WordNet text = new WordNet("data/wordnet/synsets1000-subgraph.txt",
+                "data/wordnet/hyponyms1000-subgraph.txt");
+        WordNet loaded = new WordNet(snapshot);
+
+        WordDictionary shifted = new WordDictionary();
+        shifted.intern("notaword");
+        shifted.intern("entity");
+        WordNet renumbered = new WordNet(snapshot, shifted);
+
+        for (int id = 0; id < text.dictionary().size(); id += 1) {
+            String word = text.dictionary().word(id);
+            Set<String> expected = text.hyponyms(word);
+            assertEquals(expected, loaded.hyponyms(word));
+            assertEquals(expected, renumbered.hyponyms(word));
+            assertEquals(text.isHyponym(word, "entity"), renumbered.isHyponym(word, "entity"));
+        }
+        assertEquals(text.hyponyms(Set.of("entity", "thing")),
+                renumbered.hyponyms(Set.of("entity", "thing")));
+    }
+
+    @Test
+    public void testPlannedIntersectionMatchesFullExpansion() {
+        WordNet wn = new WordNet("data/wordnet/synsets1000-subgraph.txt",
+                "data/wordnet/hyponyms1000-subgraph.txt");
+        WordDictionary dictionary = wn.dictionary();
+        int words = dictionary.size();
+        boolean sawStop = false;
+        for (int i = 0; i < words; i += 7) {
+            String a = dictionary.word(i);
+            String b = dictionary.word((i * 31 + 5) % words);
+            String c = dictionary.word((i * 17 + 11) % words);
+            for (Set<String> query : List.of(Set.of(a, b), new HashSet<>(List.of(a, b, c)),
+                    new HashSet<>(List.of(a, "entity")))) {
+                Set<String> expected = null;
+                for (String word : query) {
+                    if (expected == null) {
+                        expected = new HashSet<>(wn.hyponyms(word));
+                    } else {
+                        expected.retainAll(wn.hyponyms(word));
+                    }
+                }
+                assertEquals(expected, wn.hyponyms(query));
+
+                HyponymPlan plan = wn.explain(query);
+                assertEquals(expected.size(), plan.result());
+                assertEquals(HyponymPlan.Action.EXPAND, plan.steps().get(0).action());
+                for (int s = 1; s < plan.steps().size(); s += 1) {
+                    assertTrue(plan.steps().get(s - 1).estimate() <= plan.steps().get(s).estimate());
+                }
+                for (int s = 1; s < plan.steps().size(); s += 1) {
+                    if (plan.steps().get(s - 1).remaining() == 0) {
+                        sawStop = true;
+                        assertEquals(HyponymPlan.Action.SKIP, plan.steps().get(s).action());
+                        assertTrue(plan.stoppedEarly());
+                    }
+                }
+            }
+        }
+        assertTrue(sawStop);
+
+        // "change" is in a different synset below each query word.
+        WordNet shared = new WordNet("data/wordnet/synsets16.txt", "data/wordnet/hyponyms16.txt");
+        assertEquals(Set.of("change"), shared.hyponyms(Set.of("natural_event", "human_activity")));
+        assertEquals(1, shared.explain(Set.of("natural_event", "human_activity")).result());
+
+        HyponymPlan unknown = wn.explain(Set.of("entity", "notaword"));
+        assertEquals(HyponymPlan.Action.UNKNOWN, unknown.steps().get(0).action());
+        assertEquals(HyponymPlan.Action.SKIP, unknown.steps().get(1).action());
+        assertEquals(0, unknown.result());
+    }
+
+    @Test
+    public void testHypernymsAndCommonAncestors() {
+        WordNet wn = new WordNet("data/wordnet/synsets11.txt", "data/wordnet/hyponyms11.txt");
+        assertEquals(Set.of("demotion", "change", "action"), wn.hypernyms("demotion"));
+        assertEquals(Set.of("jump", "parachuting", "descent", "leap", "increase"), wn.hypernyms("jump"));
+        assertEquals(Set.of("change"), wn.lowestCommonAncestor(Set.of("demotion", "change")));
+        assertEquals(Set.of("descent"), wn.lowestCommonAncestor(Set.of("jump", "parachuting", "descent")));
+        assertEquals(Set.of(), wn.lowestCommonAncestor(Set.of("antihistamine", "nasal_decongestant")));
+        assertEquals(List.of(List.of("demotion"), List.of("change"), List.of("action")),
+                wn.hypernymChain("demotion"));
+        assertEquals(List.of(), wn.hypernymChain("notaword"));
+
+        wn = new WordNet("data/wordnet/synsets1000-subgraph.txt",
+                "data/wordnet/hyponyms1000-subgraph.txt");
+        WordDictionary dictionary = wn.dictionary();
+        int words = dictionary.size();
+        boolean sawAncestor = false;
+        for (int i = 0; i < words; i += 5) {
+            String a = dictionary.word(i);
+            String b = dictionary.word((i * 31 + 5) % words);
+            Set<String> expected = new HashSet<>();
+            for (int h = 0; h < words; h += 1) {
+                String word = dictionary.word(h);
+                if (wn.isHyponym(a, word)) {
+                    expected.add(word);
+                }
+            }
+            assertEquals(expected, wn.hypernyms(a));
+            List<List<String>> chain = wn.hypernymChain(a);
+            assertTrue(chain.get(0).contains(a));
+            for (List<String> synset : chain) {
+                assertTrue(expected.containsAll(synset));
+            }
+
+            Set<String> common = wn.hypernyms(Set.of(a, b));
+            Set<String> lowest = wn.lowestCommonAncestor(Set.of(a, b));
+            assertEquals(common.isEmpty(), lowest.isEmpty());
+            assertTrue(common.containsAll(lowest));
+            for (String word : lowest) {
+                sawAncestor = true;
+                assertTrue(wn.isHyponym(a, word) && wn.isHyponym(b, word));
+            }
+        }
+        assertTrue(sawAncestor);
+    }
+}
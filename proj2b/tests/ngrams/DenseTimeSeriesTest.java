@@ -0,0 +1,66 @@
+package ngrams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DenseTimeSeriesTest {
+    private static final String Q_WORDS_FILE = "data/ngrams/words_that_start_with_q.csv";
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    private static TimeSeries series(int... yearsAndValues) {
+        TimeSeries ts = new TimeSeries();
+        for (int i = 0; i < yearsAndValues.length; i += 2) {
+            ts.put(yearsAndValues[i], (double) yearsAndValues[i + 1]);
+        }
+        return ts;
+    }
+
+    @Test
+    public void testMatchesTimeSeriesArithmetic() {
+        TimeSeries a = series(1400, 3, 1991, 7, 1993, 11, 2100, 13);
+        TimeSeries b = series(1400, 2, 1991, 5, 1992, 17, 1993, 4, 2000, 8, 2100, 1);
+        DenseTimeSeries denseA = DenseTimeSeries.of(a);
+        DenseTimeSeries denseB = DenseTimeSeries.of(b);
+
+        assertThat(denseA.plus(denseB).toTimeSeries()).isEqualTo(a.plus(b));
+        assertThat(denseA.dividedBy(denseB).toTimeSeries()).isEqualTo(a.dividedBy(b));
+        assertThat(DenseTimeSeries.summed(List.of(denseA, denseB, denseA)).toTimeSeries())
+                .isEqualTo(a.plus(b).plus(a));
+        assertThat(denseA.years()).isEqualTo(a.years());
+        assertThat(denseA.data()).isEqualTo(a.data());
+        assertThat(denseA.size()).isEqualTo(4);
+        assertThat(denseA.get(1992)).isNaN();
+        assertThat(DenseTimeSeries.summed(List.of()).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testQuotientGapsStayEmpty() {
+        DenseTimeSeries a = DenseTimeSeries.of(series(1991, 6, 1995, 9));
+        DenseTimeSeries b = DenseTimeSeries.of(series(1991, 2, 1993, 0, 1995, 3));
+        DenseTimeSeries quotient = a.dividedBy(b);
+
+        assertThat(quotient.years()).containsExactly(1991, 1995).inOrder();
+        assertThat(quotient.plus(DenseTimeSeries.of(series(1993, 1))).get(1993)).isEqualTo(1.0);
+        assertThrows(IllegalArgumentException.class, () -> b.dividedBy(a));
+    }
+
+    @Test
+    public void testWeightHistoryMatchesTimeSeriesPath() {
+        NGramMap ngm = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.COLUMNAR);
+        TimeSeries totals = ngm.totalCountHistory();
+        List<String> words = List.of("quantity", "quasar", "quixotic", "notaword");
+
+        TimeSeries expected = new TimeSeries();
+        for (String word : words) {
+            TimeSeries counts = ngm.countHistory(word, 1750, 2010);
+            TimeSeries weights = counts.isEmpty() ? counts : counts.dividedBy(totals);
+            assertThat(ngm.weightHistory(word, 1750, 2010)).isEqualTo(weights);
+            expected = expected.plus(weights);
+        }
+        assertThat(ngm.summedWeightHistory(words, 1750, 2010)).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,326 @@
+package ngrams;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NGramMapTest {
+    private static final String Q_WORDS_FILE = "data/ngrams/words_that_start_with_q.csv";
+    private static final String VERY_SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    @Test
+    public void testColumnarMatchesTreeMap() {
+        NGramMap tree = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.TREE_MAP);
+        NGramMap columnar = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.COLUMNAR);
+
+        for (String word : List.of("quantity", "quasar", "quixotic", "qwerty", "notaword")) {
+            assertThat(columnar.countHistory(word)).isEqualTo(tree.countHistory(word));
+            assertThat(columnar.countHistory(word, 1800, 1900))
+                    .isEqualTo(tree.countHistory(word, 1800, 1900));
+            assertThat(columnar.weightHistory(word, 1900, 2000))
+                    .isEqualTo(tree.weightHistory(word, 1900, 2000));
+        }
+        List<String> words = List.of("quantity", "quasar", "notaword");
+        assertThat(columnar.summedWeightHistory(words, 1700, 2019))
+                .isEqualTo(tree.summedWeightHistory(words, 1700, 2019));
+    }
+
+    @Test
+    public void testCompressedMatchesTreeMap() {
+        NGramMap tree = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.TREE_MAP);
+        NGramMap compressed = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE,
+                NGramMap.StorageMode.COMPRESSED);
+
+        for (String word : List.of("quantity", "quasar", "quixotic", "qwerty", "notaword")) {
+            assertThat(compressed.countHistory(word)).isEqualTo(tree.countHistory(word));
+            assertThat(compressed.countHistory(word, 1800, 1900))
+                    .isEqualTo(tree.countHistory(word, 1800, 1900));
+            assertThat(compressed.weightHistory(word, 1900, 2000))
+                    .isEqualTo(tree.weightHistory(word, 1900, 2000));
+            assertThat(compressed.countSum(word, 1850, 1950)).isEqualTo(tree.countSum(word, 1850, 1950));
+        }
+        List<String> words = List.of("quantity", "quasar", "notaword");
+        assertThat(compressed.summedWeightHistory(words, 1700, 2019))
+                .isEqualTo(tree.summedWeightHistory(words, 1700, 2019));
+
+        /* Fractional and huge counts fall back to doubles and still round-trip exactly. */
+        CompressedHistoryStore.Builder builder = new CompressedHistoryStore.Builder(new WordDictionary());
+        builder.add("sparse", 1700, 3);
+        builder.add("sparse", 1950, 9_000_000_000L);
+        builder.add("fraction", 2000, 0.25);
+        builder.add("fraction", 2001, 1e300);
+        for (int year = 1900; year < 2000; year += 1) {
+            builder.add("dense", year, year);
+        }
+        CompressedHistoryStore store = builder.build();
+        assertThat(store.denseWords()).isEqualTo(2);
+        assertThat(store.countHistory("sparse").get(1950)).isEqualTo(9e9);
+        assertThat(store.countHistory("fraction", 1400, 2100).data()).containsExactly(0.25, 1e300);
+        assertThat(store.countHistory("dense", 1950, 1952).years()).containsExactly(1950, 1951, 1952);
+        assertThat(store.countSum("dense", 1990, 3000)).isEqualTo(19945.0);
+    }
+
+    @Test
+    public void testDownsampledMatchesYearlyMeans() {
+        NGramMap ngm = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.COLUMNAR);
+        List<String> words = List.of("quantity", "quasar", "notaword");
+
+        assertThat(ngm.weightHistory("quantity", 1600, 2019, 1000))
+                .isEqualTo(ngm.weightHistory("quantity", 1600, 2019));
+        /* {startYear, endYear, maxPoints, expected bucket width} */
+        int[][] cases = {{1600, 2019, 100, 5}, {1603, 1998, 40, 10}, {1600, 2019, 10, 100},
+                {1650, 2019, 1, 100}};
+        for (int[] c : cases) {
+            TimeSeries expected = bucketMeans(ngm, words, c[0], c[1], c[3]);
+            TimeSeries actual = ngm.summedWeightHistory(words, c[0], c[1], c[2]);
+            assertThat(actual.years()).isEqualTo(expected.years());
+            for (int year : expected.years()) {
+                assertThat(actual.get(year)).isWithin(1e-12).of(expected.get(year));
+            }
+        }
+        assertThat(ngm.weightHistory("quantity", 1603, 1998, 40).firstKey()).isEqualTo(1603);
+        assertThat(ngm.weightHistory("notaword", 1600, 2019, 10)).isEmpty();
+        assertThrows(IllegalArgumentException.class,
+                () -> ngm.weightHistory("quantity", 1400, 2019, 10));
+
+        /* A new snapshot gets new aggregates. */
+        double before = ngm.weightHistory("quantity", 1900, 1999, 1).get(1900);
+        ngm.apply(new NGramMap.Update().put("quantity", 1950, 1e12));
+        assertThat(ngm.weightHistory("quantity", 1900, 1999, 1).get(1900)).isGreaterThan(before);
+    }
+
+    /** Averages the yearly summed weights of WORDS over aligned buckets of WIDTH years. */
+    private static TimeSeries bucketMeans(NGramMap ngm, List<String> words, int start, int end,
+                                          int width) {
+        TimeSeries yearly = ngm.summedWeightHistory(words, start, end);
+        TimeSeries totals = ngm.totalCountHistory();
+        TimeSeries means = new TimeSeries();
+        for (int lo = start; lo <= end; lo = (lo / width + 1) * width) {
+            int hi = Math.min(end, (lo / width + 1) * width - 1);
+            TimeSeries bucket = new TimeSeries(yearly, lo, hi);
+            if (bucket.isEmpty()) {
+                continue;
+            }
+            double sum = 0;
+            for (double weight : bucket.values()) {
+                sum += weight;
+            }
+            means.put(lo, sum / new TimeSeries(totals, lo, hi).size());
+        }
+        return means;
+    }
+
+    @Test
+    public void testColumnarSkipsMissingYears() {
+        NGramMap columnar = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE,
+                NGramMap.StorageMode.COLUMNAR);
+
+        TimeSeries request = columnar.countHistory("request");
+        assertThat(request.years()).containsExactly(2005, 2006, 2007, 2008).inOrder();
+
+        TimeSeries copy = columnar.countHistory("request", 2006, 2007);
+        copy.put(2006, 0.0);
+        assertThat(columnar.countHistory("request").get(2006)).isEqualTo(677820.0);
+    }
+
+    @Test
+    public void testSnapshotMatchesTreeMap(@TempDir Path dir) {
+        String snapshot = dir.resolve("q.ngrams").toString();
+        NGramSnapshotCompiler.compile(Q_WORDS_FILE, TOTAL_COUNTS_FILE, snapshot);
+        NGramMap tree = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE);
+        NGramMap mapped = new NGramMap(snapshot);
+
+        assertThat(mapped.totalCountHistory()).isEqualTo(tree.totalCountHistory());
+        for (String word : List.of("quantity", "quasar", "quixotic", "qwerty", "notaword", "")) {
+            assertThat(mapped.countHistory(word)).isEqualTo(tree.countHistory(word));
+            assertThat(mapped.weightHistory(word, 1900, 2000))
+                    .isEqualTo(tree.weightHistory(word, 1900, 2000));
+        }
+    }
+
+    @Test
+    public void testUnknownWordIds(@TempDir Path dir) {
+        String snapshot = dir.resolve("q.ngrams").toString();
+        NGramSnapshotCompiler.compile(Q_WORDS_FILE, TOTAL_COUNTS_FILE, snapshot);
+        List<NGramMap> maps = new ArrayList<>();
+        for (NGramMap.StorageMode mode : NGramMap.StorageMode.values()) {
+            maps.add(new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, mode));
+        }
+        maps.add(new NGramMap(snapshot));
+
+        for (NGramMap map : maps) {
+            int quasar = map.dictionary().idOf("quasar");
+            assertThat(map.countHistory(quasar, 1400, 2100)).isEqualTo(map.countHistory("quasar"));
+            int notaword = map.dictionary().intern("notaword");
+            for (int id : new int[]{-1, notaword, map.dictionary().size(), Integer.MAX_VALUE}) {
+                assertThat(map.countHistory(id, 1400, 2100)).isEmpty();
+                assertThat(map.countSum(id, 1400, 2100)).isEqualTo(0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelLoaderMatchesSequential() {
+        ColumnarHistoryStore.Builder sequential = new ColumnarHistoryStore.Builder();
+        NGramMap.readWordsSequential(Q_WORDS_FILE, sequential);
+        ColumnarHistoryStore.Builder parallel = new ColumnarHistoryStore.Builder();
+        new ParallelWordsLoader(new ForkJoinPool(8)).load(Q_WORDS_FILE, parallel);
+
+        ColumnarHistoryStore expected = sequential.build();
+        ColumnarHistoryStore actual = parallel.build();
+        assertThat(actual.size()).isEqualTo(expected.size());
+        for (String word : expected.words()) {
+            assertThat(actual.countHistory(word)).isEqualTo(expected.countHistory(word));
+        }
+    }
+
+    @Test
+    public void testParallelLoaderSkipsRowsLikeSequential(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("malformed.csv");
+        Files.writeString(file, "quark\t1900\t5\n"
+                + "quark\t1901\t\n"
+                + "quark\t1902\t\t\n"
+                + "quark\t1903\n"
+                + "\n"
+                + "quark\t1904\t7\t\n"
+                + "quark\t2200\t9\n"
+                + "quasar\t1900\t3\r\n"
+                + "quasar\t1901\t\r\n");
+        ColumnarHistoryStore.Builder sequential = new ColumnarHistoryStore.Builder();
+        NGramMap.readWordsSequential(file.toString(), sequential);
+        ColumnarHistoryStore.Builder parallel = new ColumnarHistoryStore.Builder();
+        new ParallelWordsLoader(new ForkJoinPool(2)).load(file.toString(), parallel);
+        assertThrows(IllegalArgumentException.class, sequential::build);
+        assertThrows(IllegalArgumentException.class, parallel::build);
+
+        HistoryStore.Builder sequentialTree = new TreeMapHistoryStore.Builder(new WordDictionary());
+        NGramMap.readWordsSequential(file.toString(), sequentialTree);
+        HistoryStore.Builder parallelTree = new TreeMapHistoryStore.Builder(new WordDictionary());
+        new ParallelWordsLoader(new ForkJoinPool(2)).load(file.toString(), parallelTree);
+
+        HistoryStore expected = sequentialTree.build();
+        HistoryStore actual = parallelTree.build();
+        for (String word : List.of("quark", "quasar")) {
+            assertThat(actual.countHistory(word)).isEqualTo(expected.countHistory(word));
+        }
+        assertThat(actual.countHistory("quark").keySet()).containsExactly(1900, 1904, 2200);
+        assertThat(actual.countHistory("quasar").keySet()).containsExactly(1900);
+    }
+
+    @Test
+    public void testCountSumMatchesHistory() {
+        NGramMap tree = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.TREE_MAP);
+        NGramMap columnar = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.COLUMNAR);
+
+        int[][] ranges = {{1400, 2100}, {1505, 1505}, {1800, 1900}, {2019, 2100}, {1900, 1800}};
+        for (String word : List.of("quantity", "quasar", "quixotic", "notaword")) {
+            for (int[] range : ranges) {
+                double expected = 0;
+                for (double count : tree.countHistory(word, range[0], range[1]).values()) {
+                    expected += count;
+                }
+                assertThat(columnar.countSum(word, range[0], range[1])).isEqualTo(expected);
+                assertThat(tree.countSum(word, range[0], range[1])).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testApplyUpdate() {
+        for (NGramMap.StorageMode mode : NGramMap.StorageMode.values()) {
+            NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, mode);
+            TimeSeries before = ngm.countHistory("request", 2000, 2020);
+            double total2008 = ngm.totalCountHistory().get(2008);
+
+            ngm.apply(new NGramMap.Update()
+                    .put("request", 2006, 1.0)
+                    .put("request", 2001, 2.0)
+                    .put("brandnew", 2008, 3.0)
+                    .putTotal(2008, 10.0));
+
+            assertThat(ngm.version()).isEqualTo(1);
+            assertThat(before.get(2006)).isEqualTo(677820.0);
+            assertThat(ngm.countHistory("request", 2000, 2020).years())
+                    .containsExactly(2001, 2005, 2006, 2007, 2008).inOrder();
+            assertThat(ngm.countHistory("request").get(2006)).isEqualTo(1.0);
+            assertThat(ngm.countHistory("airport")).isEqualTo(
+                    new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE).countHistory("airport"));
+            assertThat(ngm.countSum("request", 2001, 2006)).isEqualTo(2.0 + 646179.0 + 1.0);
+            int id = ngm.dictionary().idOf("brandnew");
+            assertThat(ngm.countHistory(id, 1400, 2100).get(2008)).isEqualTo(3.0);
+            assertThat(ngm.weightHistory("brandnew").get(2008)).isEqualTo(0.3);
+            assertThat(ngm.totalCountHistory().get(2008)).isNotEqualTo(total2008);
+        }
+    }
+
+    @Test
+    public void testIngestMatchesFullLoad(@TempDir Path dir) throws IOException {
+        Path older = dir.resolve("older.csv");
+        Path newer = dir.resolve("newer.csv");
+        List<String> lines = Files.readAllLines(Path.of(Q_WORDS_FILE));
+        List<String> olderLines = new ArrayList<>();
+        List<String> newerLines = new ArrayList<>();
+        for (String line : lines) {
+            int year = Integer.parseInt(line.split("\t")[1]);
+            (year < 1950 ? olderLines : newerLines).add(line);
+        }
+        Files.write(older, olderLines);
+        Files.write(newer, newerLines);
+
+        NGramMap full = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.TREE_MAP);
+        for (NGramMap.StorageMode mode : NGramMap.StorageMode.values()) {
+            NGramMap ngm = new NGramMap(older.toString(), TOTAL_COUNTS_FILE, mode);
+            ngm.ingest(newer.toString(), TOTAL_COUNTS_FILE);
+            for (String word : List.of("quantity", "quasar", "quixotic", "qwerty")) {
+                assertThat(ngm.countHistory(word)).isEqualTo(full.countHistory(word));
+                assertThat(ngm.countSum(word, 1900, 2000)).isEqualTo(full.countSum(word, 1900, 2000));
+            }
+        }
+    }
+
+    @Test
+    public void testReadersSeeWholeUpdates() throws InterruptedException {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.COLUMNAR);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                /* Every update sets both years to the same count. */
+                boolean updated = ngm.version() > 0;
+                TimeSeries ts = ngm.countHistory("request", 2005, 2006);
+                if (updated && !ts.get(2005).equals(ts.get(2006))) {
+                    failure.set(ts.toString());
+                }
+            }
+        });
+        reader.start();
+        for (int i = 1; i <= 200; i += 1) {
+            ngm.apply(new NGramMap.Update().put("request", 2005, i).put("request", 2006, i));
+        }
+        done.set(true);
+        reader.join();
+        assertThat(failure.get()).isNull();
+        assertThat(ngm.countHistory("request").get(2006)).isEqualTo(200.0);
+    }
+
+    @Test
+    public void testSnapshotIsReadOnly(@TempDir Path dir) {
+        String snapshot = dir.resolve("short.ngrams").toString();
+        NGramSnapshotCompiler.compile(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE, snapshot);
+        NGramMap mapped = new NGramMap(snapshot);
+        assertThrows(UnsupportedOperationException.class,
+                () -> mapped.apply(new NGramMap.Update().put("request", 2006, 1.0)));
+    }
+}
@@ -0,0 +1,93 @@
+package ngrams;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the shards of a words file for tests, either as NGramShardServers in
+ * this JVM or as child JVMs running NGramShardServer.main from the same
+ * class directory. Closing the harness stops every shard.
+ */
+class ShardHarness implements AutoCloseable {
+    private final List<InetSocketAddress> addresses = new ArrayList<>();
+    private final List<NGramShardServer> servers = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+
+    private ShardHarness() {
+    }
+
+    /** Starts SHARDS shard servers inside this JVM. */
+    static ShardHarness inProcess(String wordsFilename, String countsFilename, int shards) {
+        ShardHarness harness = new ShardHarness();
+        for (int i = 0; i < shards; i += 1) {
+            NGramShardServer server = NGramShardServer.start(wordsFilename, countsFilename, i, shards, 0);
+            harness.servers.add(server);
+            harness.addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port()));
+        }
+        return harness;
+    }
+
+    /** Starts SHARDS child JVMs and waits until each reports its port. */
+    static ShardHarness childJvms(String wordsFilename, String countsFilename, int shards)
+            throws IOException {
+        ShardHarness harness = new ShardHarness();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        /* NGramShardServer only needs the ngrams classes, wherever they were loaded from. */
+        String classpath;
+        try {
+            classpath = Path.of(NGramShardServer.class.getProtectionDomain().getCodeSource()
+                    .getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IOException("Cannot locate the ngrams classes", e);
+        }
+        try {
+            for (int i = 0; i < shards; i += 1) {
+                harness.processes.add(new ProcessBuilder(java,
+                        "-cp", classpath,
+                        NGramShardServer.class.getName(),
+                        wordsFilename, countsFilename, Integer.toString(i), Integer.toString(shards))
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start());
+            }
+            for (Process process : harness.processes) {
+                BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                String line = out.readLine();
+                if (line == null || !line.startsWith("READY ")) {
+                    throw new IOException("Shard did not start: " + line);
+                }
+                int port = Integer.parseInt(line.substring("READY ".length()).trim());
+                harness.addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            }
+        } catch (IOException | RuntimeException e) {
+            harness.close();
+            throw e;
+        }
+        return harness;
+    }
+
+    /** Returns the shard addresses, in shard order. */
+    List<InetSocketAddress> addresses() {
+        return addresses;
+    }
+
+    @Override
+    public void close() {
+        for (NGramShardServer server : servers) {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // Best effort; the test is finishing anyway.
+            }
+        }
+        for (Process process : processes) {
+            process.destroy();
+        }
+    }
+}
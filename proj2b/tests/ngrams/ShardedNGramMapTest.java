@@ -0,0 +1,56 @@
+package ngrams;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class ShardedNGramMapTest {
+    private static final String Q_WORDS_FILE = "data/ngrams/words_that_start_with_q.csv";
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+    private static final List<String> WORDS =
+            List.of("quantity", "quasar", "quixotic", "qwerty", "quack", "quaint", "notaword");
+
+    /** Checks that SHARDED answers like LOCAL, up to the order in which weights are added. */
+    private static void assertSameAnswers(NGramMap sharded, NGramMap local) {
+        for (String word : WORDS) {
+            assertThat(sharded.countHistory(word)).isEqualTo(local.countHistory(word));
+            assertThat(sharded.countHistory(word, 1800, 1900)).isEqualTo(local.countHistory(word, 1800, 1900));
+            assertThat(sharded.countSum(word, 1900, 2000)).isEqualTo(local.countSum(word, 1900, 2000));
+            assertThat(sharded.weightHistory(word, 1900, 2000)).isEqualTo(local.weightHistory(word, 1900, 2000));
+            assertThat(sharded.contains(word)).isEqualTo(local.contains(word));
+        }
+        TimeSeries expected = local.summedWeightHistory(WORDS, 1700, 2019);
+        TimeSeries actual = sharded.summedWeightHistory(WORDS, 1700, 2019);
+        assertThat(actual.keySet()).isEqualTo(expected.keySet());
+        for (Map.Entry<Integer, Double> entry : expected.entrySet()) {
+            assertThat(actual.get(entry.getKey())).isWithin(1e-15).of(entry.getValue());
+        }
+        assertThat(sharded.totalCountHistory()).isEqualTo(local.totalCountHistory());
+    }
+
+    @Test
+    public void testInProcessShards() {
+        NGramMap local = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.COLUMNAR);
+        try (ShardHarness shards = ShardHarness.inProcess(Q_WORDS_FILE, TOTAL_COUNTS_FILE, 3)) {
+            WordDictionary dictionary = new WordDictionary();
+            NGramMap sharded = new NGramMap(shards.addresses(), TOTAL_COUNTS_FILE, dictionary);
+            assertSameAnswers(sharded, local);
+
+            int id = dictionary.intern("quasar");
+            assertThat(sharded.countSum(id, 1400, 2100)).isEqualTo(local.countSum("quasar", 1400, 2100));
+        }
+    }
+
+    @Test
+    public void testChildJvmShards() throws IOException {
+        NGramMap local = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.TREE_MAP);
+        try (ShardHarness shards = ShardHarness.childJvms(Q_WORDS_FILE, TOTAL_COUNTS_FILE, 2)) {
+            NGramMap sharded = new NGramMap(shards.addresses(), TOTAL_COUNTS_FILE, new WordDictionary());
+            assertSameAnswers(sharded, local);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ngrams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SimilarityIndexTest {
+    private static final String Q_WORDS_FILE = "data/ngrams/words_that_start_with_q.csv";
+    private static final String VERY_SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    @Test
+    public void testSimilarMatchesBruteForce() {
+        NGramMap ngm = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, NGramMap.StorageMode.COLUMNAR);
+        SimilarityIndex index = SimilarityIndex.build(ngm, 1900, 2019, 5,
+                SimilarityIndex.Metric.PEARSON, false);
+        assertThat(index.dimensions()).isEqualTo(24);
+
+        List<String> words = new ArrayList<>();
+        List<double[]> points = new ArrayList<>();
+        ngm.forEachWeightHistory(1900, 2019, (word, weights) -> {
+            double[] point = new double[24];
+            for (int year = 1900; year <= 2019; year += 1) {
+                point[(year - 1900) / 5] += weights.valueAt(year - TimeSeries.MIN_YEAR) / 5;
+            }
+            words.add(word);
+            points.add(point);
+        });
+
+        for (String query : List.of("question", "quality", "quantum")) {
+            double[] q = points.get(words.indexOf(query));
+            List<SimilarityIndex.Match> expected = new ArrayList<>();
+            for (int i = 0; i < words.size(); i += 1) {
+                double r = pearson(q, points.get(i));
+                if (!words.get(i).equals(query) && !Double.isNaN(r)) {
+                    expected.add(new SimilarityIndex.Match(words.get(i), r));
+                }
+            }
+            expected.sort(Comparator.comparingDouble(SimilarityIndex.Match::score).reversed());
+
+            List<SimilarityIndex.Match> actual = index.similar(List.of(query), 5);
+            assertThat(actual).hasSize(5);
+            for (int i = 0; i < 5; i += 1) {
+                assertThat(actual.get(i).word()).isEqualTo(expected.get(i).word());
+                assertThat(actual.get(i).score()).isWithin(1e-4).of(expected.get(i).score());
+            }
+        }
+        assertThat(index.similar(List.of("notaword"), 5)).isEmpty();
+        assertThat(index.similar(List.of("question"), 0)).isEmpty();
+        assertThrows(IllegalStateException.class,
+                () -> index.approximateSimilar(List.of("question"), 5));
+    }
+
+    private static double pearson(double[] x, double[] y) {
+        double mx = 0;
+        double my = 0;
+        for (int i = 0; i < x.length; i += 1) {
+            mx += x[i] / x.length;
+            my += y[i] / y.length;
+        }
+        double sxy = 0;
+        double sxx = 0;
+        double syy = 0;
+        for (int i = 0; i < x.length; i += 1) {
+            sxy += (x[i] - mx) * (y[i] - my);
+            sxx += (x[i] - mx) * (x[i] - mx);
+            syy += (y[i] - my) * (y[i] - my);
+        }
+        return sxy / Math.sqrt(sxx * syy);
+    }
+
+    /**
+     * Builds enough words to take the parallel scan, in groups that share a
+     * random shape up to a little noise, and checks that both lookups find
+     * each word's group first.
+     */
+    @Test
+    public void testLookupsFindCorrelatedGroups() {
+        int groups = SimilarityIndex.PARALLEL_ROWS / 20 + 1;
+        int groupSize = 20;
+        Random random = new Random(61);
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE,
+                NGramMap.StorageMode.COLUMNAR);
+        NGramMap.Update update = new NGramMap.Update();
+        for (int g = 0; g < groups; g += 1) {
+            double[] shape = new double[30];
+            for (int i = 0; i < shape.length; i += 1) {
+                shape[i] = 1000 + 1000 * random.nextDouble();
+            }
+            for (int w = 0; w < groupSize; w += 1) {
+                for (int i = 0; i < shape.length; i += 1) {
+                    double total = ngm.totalCountHistory().get(1990 + i);
+                    double noise = 1 + 0.02 * random.nextGaussian();
+                    update.put("g" + g + "w" + w, 1990 + i, Math.rint(shape[i] * noise * total / 1e6));
+                }
+            }
+        }
+        ngm.apply(update);
+        SimilarityIndex index = SimilarityIndex.build(ngm, 1990, 2019, 1,
+                SimilarityIndex.Metric.PEARSON, true);
+        assertThat(index.size()).isAtLeast(SimilarityIndex.PARALLEL_ROWS);
+
+        for (int g = 0; g < groups; g += groups / 10) {
+            String query = "g" + g + "w0";
+            List<SimilarityIndex.Match> exact = index.similar(List.of(query), 5);
+            List<SimilarityIndex.Match> approximate = index.approximateSimilar(List.of(query), 5);
+            assertThat(approximate).isEqualTo(exact);
+            for (SimilarityIndex.Match match : exact) {
+                assertThat(match.word()).startsWith("g" + g + "w");
+                assertThat(match.score()).isGreaterThan(0.9);
+            }
+        }
+    }
+}
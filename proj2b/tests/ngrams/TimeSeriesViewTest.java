@@ -0,0 +1,123 @@
+package ngrams;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class TimeSeriesViewTest {
+    private static final String VERY_SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    private static TimeSeries source() {
+        TimeSeries ts = new TimeSeries();
+        for (int year = 1900; year <= 2000; year += 10) {
+            ts.put(year, year / 10.0);
+        }
+        return ts;
+    }
+
+    @Test
+    public void testViewReadsLikeCopy() {
+        TimeSeries source = source();
+        TimeSeries view = TimeSeries.view(source, 1925, 1960);
+        TimeSeries copy = new TimeSeries(source, 1925, 1960);
+
+        assertThat(view).isEqualTo(copy);
+        assertThat(copy).isEqualTo(view);
+        assertThat(view.hashCode()).isEqualTo(copy.hashCode());
+        assertThat(view.years()).containsExactly(1930, 1940, 1950, 1960).inOrder();
+        assertThat(view.data()).isEqualTo(copy.data());
+        assertThat(view.get(1920)).isNull();
+        assertThat(view.firstKey()).isEqualTo(1930);
+        assertThat(view.ceilingKey(1961)).isNull();
+        assertThat(view.plus(copy)).isEqualTo(copy.plus(copy));
+        assertThat(view.dividedBy(copy).values()).containsExactly(1.0, 1.0, 1.0, 1.0);
+    }
+
+    @Test
+    public void testCollectionWritesCopyOnWrite() {
+        TimeSeries source = source();
+
+        TimeSeries keys = TimeSeries.view(source, 1900, 1960);
+        assertThat(keys.keySet().removeIf(year -> year < 1930)).isTrue();
+        assertThat(keys.years()).containsExactly(1930, 1940, 1950, 1960).inOrder();
+
+        TimeSeries entries = TimeSeries.view(source, 1900, 1960);
+        for (Map.Entry<Integer, Double> entry : entries.entrySet()) {
+            entry.setValue(entry.getValue() * 2);
+        }
+        assertThat(entries.get(1950)).isEqualTo(390.0);
+
+        TimeSeries iterated = TimeSeries.view(source, 1900, 1960);
+        Iterator<Double> values = iterated.values().iterator();
+        while (values.hasNext()) {
+            if (values.next() > 193) {
+                values.remove();
+            }
+        }
+        assertThat(iterated.years()).containsExactly(1900, 1910, 1920, 1930).inOrder();
+
+        TimeSeries cleared = TimeSeries.view(source, 1900, 1960);
+        cleared.entrySet().clear();
+        assertThat(cleared).isEmpty();
+
+        TimeSeries ranged = TimeSeries.view(source, 1900, 1960);
+        ranged.headMap(1930).clear();
+        ranged.descendingMap().pollFirstEntry();
+        assertThat(ranged.years()).containsExactly(1930, 1940, 1950).inOrder();
+
+        assertThat(source).isEqualTo(source());
+    }
+
+    @Test
+    public void testWritesCopyOnWrite() throws IOException, ClassNotFoundException {
+        TimeSeries source = source();
+        TimeSeries view = TimeSeries.view(source, 1925, 1960);
+
+        view.put(1930, -1.0);
+        view.remove(1960);
+        view.put(2100, 5.0);
+
+        assertThat(view.years()).containsExactly(1930, 1940, 1950, 2100).inOrder();
+        assertThat(view.get(1930)).isEqualTo(-1.0);
+        assertThat(source).isEqualTo(source());
+
+        TimeSeries unmodified = TimeSeries.view(source, 1900, 1950);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(unmodified);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertThat(in.readObject()).isEqualTo(unmodified);
+        }
+        assertThat(unmodified.clone()).isEqualTo(unmodified);
+    }
+
+    @Test
+    public void testNGramMapHandsOutIndependentViews() {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE);
+
+        TimeSeries request = ngm.countHistory("request", 2006, 2007);
+        request.put(2006, 0.0);
+        request.clear();
+        assertThat(ngm.countHistory("request").get(2006)).isEqualTo(677820.0);
+
+        TimeSeries pruned = ngm.countHistory("request");
+        pruned.keySet().removeIf(year -> year < 2007);
+        assertThat(pruned.years()).containsExactly(2007, 2008).inOrder();
+        assertThat(ngm.countHistory("request").size()).isEqualTo(4);
+
+        TimeSeries totals = ngm.totalCountHistory();
+        double first = totals.firstEntry().getValue();
+        totals.pollFirstEntry();
+        assertThat(ngm.totalCountHistory().firstEntry().getValue()).isEqualTo(first);
+    }
+}
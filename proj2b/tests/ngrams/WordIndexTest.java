@@ -0,0 +1,119 @@
+package ngrams;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class WordIndexTest {
+    private static final String Q_WORDS_FILE = "data/ngrams/words_that_start_with_q.csv";
+    private static final String VERY_SHORT_WORDS_FILE = "data/ngrams/very_short.csv";
+    private static final String TOTAL_COUNTS_FILE = "data/ngrams/total_counts.csv";
+
+    @Test
+    public void testCompleteRanksByCount() {
+        WordIndex index = new WordIndex(
+                new String[]{"cat", "car", "cart", "dog", "ca", "carp", "cab"},
+                new double[]{50, 70, 10, 99, 5, 10, 70});
+
+        assertThat(index.complete("ca", 10)).containsExactly(
+                "cab", "car", "cat", "carp", "cart", "ca").inOrder();
+        assertThat(index.complete("car", 2)).containsExactly("car", "carp").inOrder();
+        assertThat(index.complete("", 2)).containsExactly("dog", "cab").inOrder();
+        assertThat(index.complete("cow", 5)).isEmpty();
+        assertThat(index.complete("zebra", 5)).isEmpty();
+        assertThat(index.complete("ca", 0)).isEmpty();
+    }
+
+    @Test
+    public void testBloomFilterHasNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i += 1) {
+            filter.add("word" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i += 1) {
+            assertThat(filter.mightContain("word" + i)).isTrue();
+            if (filter.mightContain("other" + i)) {
+                falsePositives += 1;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    public void testAutocompleteMatchesBruteForce() {
+        for (NGramMap.StorageMode mode : NGramMap.StorageMode.values()) {
+            NGramMap ngm = new NGramMap(Q_WORDS_FILE, TOTAL_COUNTS_FILE, mode);
+            for (String prefix : List.of("qu", "quant", "q", "qx", "quadr")) {
+                assertThat(ngm.autocomplete(prefix, 7)).isEqualTo(bruteForce(ngm, prefix, 7));
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownWordsAreRejected() {
+        NGramMap ngm = new NGramMap(VERY_SHORT_WORDS_FILE, TOTAL_COUNTS_FILE,
+                NGramMap.StorageMode.COLUMNAR);
+        assertThat(ngm.contains("request")).isTrue();
+        assertThat(ngm.contains("requests")).isFalse();
+        assertThat(ngm.countHistory("requests", 2000, 2010)).isEmpty();
+        assertThat(ngm.countSum("requests", 2000, 2010)).isEqualTo(0.0);
+        assertThat(ngm.autocomplete("w", 5)).containsExactly("wandered");
+
+        ngm.apply(new NGramMap.Update().put("requests", 2007, 12));
+        assertThat(ngm.contains("requests")).isTrue();
+        assertThat(ngm.autocomplete("req", 5)).containsExactly("request", "requests").inOrder();
+    }
+
+    @Test
+    public void testLazyIndexIsOnlyBuiltOnRequest() {
+        ColumnarHistoryStore.Builder builder = new ColumnarHistoryStore.Builder();
+        NGramMap.readWordsSequential(VERY_SHORT_WORDS_FILE, builder);
+        WordIndex.Lazy lazy = new WordIndex.Lazy(builder.build());
+
+        assertThat(lazy.peek()).isNull();
+        WordIndex index = lazy.get();
+        assertThat(index).isNotNull();
+        assertThat(lazy.peek()).isSameInstanceAs(index);
+    }
+
+    private static List<String> bruteForce(NGramMap ngm, String prefix, int k) {
+        Map<String, Double> totals = new TreeMap<>();
+        Scan scan = new Scan(Q_WORDS_FILE);
+        for (String word : scan.words) {
+            if (word.startsWith(prefix)) {
+                totals.put(word, ngm.countSum(word, TimeSeries.MIN_YEAR, TimeSeries.MAX_YEAR));
+            }
+        }
+        List<String> words = new ArrayList<>(totals.keySet());
+        words.sort(Comparator.comparing((String w) -> -totals.get(w)).thenComparing(w -> w));
+        return words.subList(0, Math.min(k, words.size()));
+    }
+
+    /** The distinct words of a words file. */
+    private static class Scan {
+        final List<String> words = new ArrayList<>();
+
+        Scan(String wordsFile) {
+            NGramMap.readWordsSequential(wordsFile, new HistoryStore.Builder() {
+                @Override
+                public void add(String word, int year, double count) {
+                    if (words.isEmpty() || !words.get(words.size() - 1).equals(word)) {
+                        words.add(word);
+                    }
+                }
+
+                @Override
+                public HistoryStore build() {
+                    return null;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ngrams;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compares the sequential BufferedReader loader with ParallelWordsLoader on
+ * words_that_start_with_q.csv and on larger synthetic words files. Run the
+ * main method; it is not a JUnit test because it takes a while.
+ */
+public class WordsLoaderTiming {
+    private static final String Q_WORDS_FILE = "data/ngrams/words_that_start_with_q.csv";
+
+    /* Rows in each synthetic file. */
+    private static final int[] SYNTHETIC_ROWS = {1_000_000, 5_000_000, 20_000_000};
+    private static final int TRIALS = 5;
+    private static final long SEED = 61;
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%-36s %12s %14s %12s %8s%n",
+                "file", "bytes", "sequential ms", "parallel ms", "speedup");
+        time(Q_WORDS_FILE);
+
+        Path dir = Files.createTempDirectory("ngrams");
+        for (int rows : SYNTHETIC_ROWS) {
+            Path file = dir.resolve("synthetic_" + rows + ".csv");
+            writeSynthetic(file, rows);
+            time(file.toString());
+            Files.delete(file);
+        }
+        Files.delete(dir);
+    }
+
+    private static void time(String wordsFilename) {
+        double sequential = Double.MAX_VALUE;
+        double parallel = Double.MAX_VALUE;
+        for (int i = 0; i < TRIALS; i += 1) {
+            long start = System.nanoTime();
+            NGramMap.readWordsSequential(wordsFilename, new ColumnarHistoryStore.Builder());
+            sequential = Math.min(sequential, (System.nanoTime() - start) / 1e6);
+
+            start = System.nanoTime();
+            new ParallelWordsLoader().load(wordsFilename, new ColumnarHistoryStore.Builder());
+            parallel = Math.min(parallel, (System.nanoTime() - start) / 1e6);
+        }
+        System.out.printf("%-36s %12d %14.1f %12.1f %7.2fx%n",
+                Path.of(wordsFilename).getFileName(), Path.of(wordsFilename).toFile().length(),
+                sequential, parallel, sequential / parallel);
+    }
+
+    /** Writes ROWS lines of random words, each with a run of consecutive years. */
+    private static void writeSynthetic(Path file, int rows) throws IOException {
+        Random random = new Random(SEED);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file.toFile()), 1 << 16)) {
+            int written = 0;
+            int wordNumber = 0;
+            while (written < rows) {
+                String word = "w" + Integer.toString(wordNumber, 36);
+                int firstYear = 1500 + random.nextInt(400);
+                int years = 1 + random.nextInt(2020 - firstYear);
+                for (int y = 0; y < years && written < rows; y += 1) {
+                    out.write(word + "\t" + (firstYear + y) + "\t" + random.nextInt(1_000_000)
+                            + "\t" + (1 + random.nextInt(1000)) + "\n");
+                    written += 1;
+                }
+                wordNumber += 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package plotting;
+
+import ngrams.TimeSeries;
+import org.junit.jupiter.api.Test;
+import org.knowm.xchart.BitmapEncoder;
+import org.knowm.xchart.XYChart;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+class ChartRendererTest {
+
+    private static XYChart line(String word, double slope) {
+        TimeSeries ts = new TimeSeries();
+        for (int year = 2000; year <= 2010; year += 1) {
+            ts.put(year, slope * (year - 2000));
+        }
+        return Plotter.generateTimeSeriesChart(List.of(word), List.of(ts));
+    }
+
+    private static ChartRenderer.Key key(String word, boolean normalized) {
+        return new ChartRenderer.Key(List.of(word), 2000, 2010, normalized, Integer.MAX_VALUE, 0);
+    }
+
+    private static BufferedImage decode(String image) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(Base64.getDecoder().decode(image)));
+    }
+
+    @Test
+    public void testPooledEncoderMatchesBitmapEncoder() throws IOException {
+        XYChart chart = line("cat", 2);
+        BufferedImage expected = BitmapEncoder.getBufferedImage(chart);
+
+        /* Encode a different chart first so the pooled image holds stale pixels. */
+        PngEncoder.encode(line("dog", -3));
+        BufferedImage actual = decode(PngEncoder.encode(chart));
+
+        assertThat(actual.getWidth()).isEqualTo(expected.getWidth());
+        assertThat(actual.getHeight()).isEqualTo(expected.getHeight());
+        for (int y = 0; y < expected.getHeight(); y += 1) {
+            for (int x = 0; x < expected.getWidth(); x += 1) {
+                assertThat(actual.getRGB(x, y)).isEqualTo(expected.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testCacheHitsAndEviction() {
+        ChartRenderer renderer = new ChartRenderer(1 << 20);
+        ChartRenderer.Key cat = key("cat", true);
+        int[] builds = new int[1];
+
+        String first = renderer.render(cat, () -> {
+            builds[0] += 1;
+            return line("cat", 2);
+        });
+        String second = renderer.render(key("cat", true), () -> {
+            builds[0] += 1;
+            return line("cat", 2);
+        });
+        renderer.render(key("cat", false), () -> line("cat", 2));
+
+        assertThat(second).isSameInstanceAs(first);
+        assertThat(builds[0]).isEqualTo(1);
+        assertThat(renderer.stats().hits()).isEqualTo(1);
+        assertThat(renderer.stats().misses()).isEqualTo(2);
+        assertThat(renderer.stats().entries()).isEqualTo(2);
+
+        ChartRenderer tiny = new ChartRenderer(first.length());
+        tiny.render(cat, () -> line("cat", 2));
+        tiny.render(key("dog", true), () -> line("cat", 2));
+        assertThat(tiny.stats().evictions()).isEqualTo(1);
+        assertThat(tiny.stats().entries()).isEqualTo(1);
+    }
+}